@@ -0,0 +1,74 @@
+package org.example.benchmarks;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.json.transformers.MergedPurchaseItemToArray;
+import org.example.json.transformers.PurchaseItemToArray;
+import org.example.json.transformers.converters.InputFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputFormatBenchmark {
+
+    /*
+        The purchased items column decoded from text json ( as a string, or as bytes ) and from Smile and CBOR bytes,
+        by PurchaseItemToArray ( one struct per purchase ) and MergedPurchaseItemToArray ( one struct per distinct item ).
+        java -jar target/benchmarks.jar InputFormatBenchmark -prof gc
+     */
+
+    @Param({"json-string", "json", "smile", "cbor"})
+    public String format;
+
+    @Param({"10", "100", "1000"})
+    public int purchases;
+
+    @Param({"false", "true"})
+    public boolean merged;
+
+    private Transformation<SourceRecord> transformation;
+    private SourceRecord record;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        boolean text = format.equals("json-string");
+        InputFormat inputFormat = text ? InputFormat.JSON : InputFormat.forName(format);
+        byte[] items = UserPurchases.items(inputFormat.factory(), purchases, 42);
+
+        transformation = merged ? new MergedPurchaseItemToArray.Value<>() : new PurchaseItemToArray.Value<>();
+        transformation.configure(Map.of("field", "purchased_items", "format", inputFormat.name()));
+        Schema valueSchema = UserPurchases.valueSchema(text ? Schema.STRING_SCHEMA : Schema.BYTES_SCHEMA);
+        record = UserPurchases.record(valueSchema, 1, text ? UserPurchases.text(items) : items);
+    }
+
+    @Benchmark
+    public SourceRecord apply() {
+        return transformation.apply(record);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transformation.close();
+    }
+}
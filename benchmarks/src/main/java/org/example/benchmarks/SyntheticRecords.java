@@ -0,0 +1,78 @@
+package org.example.benchmarks;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.example.json.transformers.converters.InputFormat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public final class SyntheticRecords {
+
+    /*
+        Records of any width for the transformers benchmarks : width scalar fields f0, f1, ... ( int32, int64, string, float64 and
+        boolean in turn ) followed by a purchased_items field holding a json array of purchases ( see UserPurchases ).
+        The key and the value are the same struct ( or map without schema ), so that the Key and Value variants do the same work.
+        The records are generated from a seed, so that every run gets the same data.
+     */
+
+    public static final String ITEMS_FIELD = "purchased_items";
+
+    private static final Schema[] FIELD_SCHEMAS = {
+            Schema.INT32_SCHEMA, Schema.INT64_SCHEMA, Schema.STRING_SCHEMA, Schema.FLOAT64_SCHEMA, Schema.BOOLEAN_SCHEMA
+    };
+
+    private SyntheticRecords() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static String fieldName(int index) {
+        return "f" + index;
+    }
+
+    public static Schema schema(int width) {
+
+        SchemaBuilder builder = SchemaBuilder.struct().name("SyntheticRecord");
+        for (int i = 0; i < width; i++) {
+            builder.field(fieldName(i), FIELD_SCHEMAS[i % FIELD_SCHEMAS.length]);
+        }
+        return builder.field(ITEMS_FIELD, Schema.STRING_SCHEMA).build();
+    }
+
+    // a record with a key and a value of the schema, or maps when the schema is null
+    public static SourceRecord record(Schema schema, int width, int items, long seed) {
+
+        Random random = new Random(seed);
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < width; i++) {
+            values.put(fieldName(i), value(FIELD_SCHEMAS[i % FIELD_SCHEMAS.length], random));
+        }
+        values.put(ITEMS_FIELD, UserPurchases.text(UserPurchases.items(InputFormat.JSON.factory(), items, seed)));
+
+        if (schema == null) {
+            return new SourceRecord(null, null, "synthetic", 0, null, values, null, new HashMap<>(values));
+        }
+        Struct value = new Struct(schema);
+        values.forEach(value::put);
+        return new SourceRecord(null, null, "synthetic", 0, schema, value, schema, value);
+    }
+
+    private static Object value(Schema schema, Random random) {
+
+        switch (schema.type()) {
+            case INT32:
+                return random.nextInt();
+            case INT64:
+                return random.nextLong();
+            case STRING:
+                return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            case FLOAT64:
+                return random.nextDouble() * 1000;
+            default:
+                return random.nextBoolean();
+        }
+    }
+}
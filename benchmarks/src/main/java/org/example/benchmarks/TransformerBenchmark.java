@@ -0,0 +1,117 @@
+package org.example.benchmarks;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.integrity.transformer.IntegrityCheck;
+import org.example.json.transformers.MergedPurchaseItemToArray;
+import org.example.json.transformers.PurchaseItemToArray;
+import org.example.simple.tranformers.Identity;
+import org.example.simple.tranformers.RenameField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformerBenchmark {
+
+    /*
+        apply() of every transformer, Key and Value variants, with and without schema, on synthetic records ( see SyntheticRecords )
+        of width scalar fields and a json array of items purchases. Identity does nothing but copy the record : it is the cost of
+        the Connect plumbing that every other transformer pays too.
+        java -jar target/benchmarks.jar TransformerBenchmark -p transformer=identity,rename-field -prof gc
+     */
+
+    @Param({"identity", "rename-field", "integrity-check", "purchase-item-to-array", "merged-purchase-item-to-array"})
+    public String transformer;
+
+    @Param({"value", "key"})
+    public String side;
+
+    @Param({"true", "false"})
+    public boolean withSchema;
+
+    @Param({"8", "32"})
+    public int width;
+
+    @Param({"10", "1000"})
+    public int items;
+
+    private Transformation<SourceRecord> transformation;
+    private SourceRecord record;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        transformation = create(transformer, side.equals("key"));
+        transformation.configure(config(transformer));
+        record = SyntheticRecords.record(withSchema ? SyntheticRecords.schema(width) : null, width, items, 42);
+    }
+
+    static Transformation<SourceRecord> create(String transformer, boolean key) {
+
+        switch (transformer) {
+            case "identity":
+                return key ? new Identity.Key<>() : new Identity.Value<>();
+            case "rename-field":
+                return key ? new RenameField.Key<>() : new RenameField.Value<>();
+            case "integrity-check":
+                return key ? new IntegrityCheck.Key<>() : new IntegrityCheck.Value<>();
+            case "purchase-item-to-array":
+                return key ? new PurchaseItemToArray.Key<>() : new PurchaseItemToArray.Value<>();
+            case "merged-purchase-item-to-array":
+                return key ? new MergedPurchaseItemToArray.Key<>() : new MergedPurchaseItemToArray.Value<>();
+            default:
+                throw new IllegalArgumentException("Unknown transformer " + transformer);
+        }
+    }
+
+    static Map<String, ?> config(String transformer) {
+
+        switch (transformer) {
+            case "rename-field":
+                return Map.of(RenameField.RENAMES_CONFIG, SyntheticRecords.fieldName(0) + ":renamed_0," + SyntheticRecords.fieldName(1) + ":renamed_1");
+            case "integrity-check":
+                return Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity");
+            case "purchase-item-to-array":
+            case "merged-purchase-item-to-array":
+                return Map.of("field", SyntheticRecords.ITEMS_FIELD);
+            default:
+                return Map.of();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public SourceRecord throughput() {
+        return transformation.apply(record);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SourceRecord latency() {
+        return transformation.apply(record);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transformation.close();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public final class UserPurchases {
+
+    /*
+        Records shaped like the rows of the purchases.user_purchases view of the json-transformers readme : a user and the json_agg
+        of its purchased items. Users buy the same items again, so an array of n purchases holds about n / 4 distinct items.
+        The records are generated from a seed, so that every run and every format gets the same data.
+     */
+
+    private static final String[] CATALOG = {
+            "Laptop", "Smartphone", "Headphones", "Keyboard", "Mouse", "Monitor", "Webcam", "Microphone", "Desk lamp", "Backpack",
+            "USB cable", "Charger", "Tablet", "Smartwatch", "Speaker", "Printer", "Router", "External drive", "Memory card", "Graphics card"
+    };
+
+    private UserPurchases() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static Schema valueSchema(Schema itemsSchema) {
+        return SchemaBuilder.struct()
+                .name("PurchasesRecords")
+                .field("user_id", Schema.INT32_SCHEMA)
+                .field("email", Schema.STRING_SCHEMA)
+                .field("purchased_items", itemsSchema)
+                .build();
+    }
+
+    // the purchased items of a user, encoded with the factory ( json, smile or cbor )
+    public static byte[] items(JsonFactory factory, int purchases, long seed) {
+
+        Random random = new Random(seed);
+        int distinctItems = Math.max(1, purchases / 4);
+        int[] itemIds = new int[distinctItems];
+        for (int i = 0; i < distinctItems; i++) {
+            itemIds[i] = 1 + random.nextInt(100_000);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartArray();
+            for (int i = 0; i < purchases; i++) {
+                int itemId = itemIds[random.nextInt(distinctItems)];
+                generator.writeStartObject();
+                generator.writeNumberField("item_id", itemId);
+                generator.writeStringField("name", CATALOG[itemId % CATALOG.length]);
+                generator.writeNumberField("price", 5 + itemId % 1000);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static SourceRecord record(Schema valueSchema, int userId, Object items) {
+
+        if (valueSchema == null) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("user_id", userId);
+            value.put("email", "user" + userId + "@example.com");
+            value.put("purchased_items", items);
+            return new SourceRecord(null, null, "jdbc.connect.view.user_purchases", 0, null, null, null, value);
+        }
+        Struct value = new Struct(valueSchema)
+                .put("user_id", userId)
+                .put("email", "user" + userId + "@example.com")
+                .put("purchased_items", items);
+        return new SourceRecord(null, null, "jdbc.connect.view.user_purchases", 0, null, null, valueSchema, value);
+    }
+
+    public static String text(byte[] json) {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.benchmarks.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class CapturedRecords {
+
+    /*
+        Reads the records to replay, as the source connector gives them to the transformers.
+        Json lines : one record per line, {"topic": ..., "partition": ..., "timestamp": ..., "key": ..., "value": ...}, the key and
+        the value being written as the JsonConverter writes them ( {"schema": ..., "payload": ...} when schemas.enable is true ).
+        Binary dump : the same records in frames ( topic, partition, timestamp, then the key and the value bytes of the JsonConverter ),
+        much faster to load for a large capture : see write, or the --dump option of the ReplayDriver.
+        The converters take their settings from the connector config ( key.converter.schemas.enable, value.converter.schemas.enable ).
+     */
+
+    private static final int MAGIC = 0x4B435244;
+    private static final int VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonConverter keyConverter = new JsonConverter();
+    private final JsonConverter valueConverter = new JsonConverter();
+
+    public CapturedRecords(Map<String, String> connectorConfig) {
+        keyConverter.configure(ConnectorConfig.withPrefix(connectorConfig, "key.converter."), true);
+        valueConverter.configure(ConnectorConfig.withPrefix(connectorConfig, "value.converter."), false);
+    }
+
+    public List<SourceRecord> read(Path path) throws IOException {
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (Files.size(path) >= Integer.BYTES && data.readInt() == MAGIC) {
+                return readBinary(data);
+            }
+        }
+        return readJsonLines(path);
+    }
+
+    private List<SourceRecord> readJsonLines(Path path) throws IOException {
+
+        List<SourceRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record = MAPPER.readTree(line);
+                if (!record.isObject()) {
+                    throw new IOException(path + ":" + number + " is not a json object");
+                }
+                records.add(toRecord(record.path("topic").asText("replay"), record.path("partition").asInt(0),
+                        record.hasNonNull("timestamp") ? record.get("timestamp").asLong() : null,
+                        bytes(record.get("key")), bytes(record.get("value"))));
+            }
+        }
+        return records;
+    }
+
+    private static byte[] bytes(JsonNode node) throws IOException {
+        return node == null || node.isNull() ? null : MAPPER.writeValueAsBytes(node);
+    }
+
+    private List<SourceRecord> readBinary(DataInputStream data) throws IOException {
+
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unknown binary dump version " + version);
+        }
+        List<SourceRecord> records = new ArrayList<>();
+        while (true) {
+            String topic;
+            try {
+                topic = data.readUTF();
+            } catch (EOFException e) {
+                return records;
+            }
+            int partition = data.readInt();
+            long timestamp = data.readLong();
+            byte[] key = readBytes(data);
+            byte[] value = readBytes(data);
+            records.add(toRecord(topic, partition, timestamp == Long.MIN_VALUE ? null : timestamp, key, value));
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+
+        int length = data.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return bytes;
+    }
+
+    private SourceRecord toRecord(String topic, int partition, Long timestamp, byte[] key, byte[] value) {
+
+        SchemaAndValue connectKey = keyConverter.toConnectData(topic, key);
+        SchemaAndValue connectValue = valueConverter.toConnectData(topic, value);
+        return new SourceRecord(null, null, topic, partition, connectKey.schema(), connectKey.value(), connectValue.schema(), connectValue.value(), timestamp);
+    }
+
+    // the records as a binary dump, their key and value written back by the JsonConverter
+    public void write(List<SourceRecord> records, Path path) throws IOException {
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            for (SourceRecord record : records) {
+                data.writeUTF(record.topic());
+                data.writeInt(record.kafkaPartition() == null ? 0 : record.kafkaPartition());
+                data.writeLong(record.timestamp() == null ? Long.MIN_VALUE : record.timestamp());
+                writeBytes(data, keyConverter.fromConnectData(record.topic(), record.keySchema(), record.key()));
+                writeBytes(data, valueConverter.fromConnectData(record.topic(), record.valueSchema(), record.value()));
+            }
+            data.flush();
+        }
+    }
+
+    private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+
+        if (bytes == null) {
+            data.writeInt(NULL_LENGTH);
+            return;
+        }
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+}
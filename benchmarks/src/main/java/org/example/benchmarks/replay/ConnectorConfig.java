@@ -0,0 +1,59 @@
+package org.example.benchmarks.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+public final class ConnectorConfig {
+
+    /*
+        The connector config, as it is given to Connect : a .properties file ( standalone worker ), or the json posted to the
+        REST api ( {"name": ..., "config": {...}} as in the readmes of the modules, or only the config object ).
+     */
+
+    private ConnectorConfig() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static Map<String, String> load(Path path) throws IOException {
+
+        Map<String, String> config = new HashMap<>();
+        if (path.getFileName().toString().endsWith(".json")) {
+            JsonNode root = new ObjectMapper().readTree(path.toFile());
+            JsonNode values = root.has("config") ? root.get("config") : root;
+            Iterator<Map.Entry<String, JsonNode>> fields = values.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                config.put(field.getKey(), field.getValue().asText());
+            }
+            return config;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        properties.stringPropertyNames().forEach(name -> config.put(name, properties.getProperty(name).trim()));
+        return config;
+    }
+
+    // the settings starting with the prefix, without it
+    public static Map<String, String> withPrefix(Map<String, String> config, String prefix) {
+
+        Map<String, String> prefixed = new HashMap<>();
+        config.forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                prefixed.put(name.substring(prefix.length()), value);
+            }
+        });
+        return prefixed;
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.benchmarks.replay;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.example.transformers.common.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+
+public final class ReplayDriver {
+
+    /*
+        Replays captured records ( see CapturedRecords ) through the transformers of a connector config ( see TransformChain ),
+        without Kafka, the database or Connect, to size the workers against real data.
+        Each thread is a task : its own transformers, and its share of the records ( record i goes to thread i % threads ).
+        The threads replay their records warmup times first, then iterations times while they are measured :
+        the throughput of all the threads together, the latency of the chain per record, and the bytes allocated per record.
+        java -cp target/benchmarks.jar org.example.benchmarks.replay.ReplayDriver --config connector.json --records purchases.jsonl --threads 4
+     */
+
+    private ReplayDriver() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = options(args);
+        if (!options.containsKey("config") || !options.containsKey("records")) {
+            System.err.println("Usage : ReplayDriver --config <connector .json or .properties> --records <json lines or binary dump>"
+                    + " [--threads 1] [--warmup 1] [--iterations 5] [--dump <binary dump to write>]");
+            System.exit(2);
+        }
+        Map<String, String> connectorConfig = ConnectorConfig.load(Paths.get(options.get("config")));
+        CapturedRecords captured = new CapturedRecords(connectorConfig);
+        List<SourceRecord> records = captured.read(Paths.get(options.get("records")));
+        System.out.printf(Locale.ROOT, "Loaded %d records from %s%n", records.size(), options.get("records"));
+        if (options.containsKey("dump")) {
+            Path dump = Paths.get(options.get("dump"));
+            captured.write(records, dump);
+            System.out.printf(Locale.ROOT, "Wrote the binary dump %s%n", dump);
+            return;
+        }
+
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "1"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        Report report = replay(connectorConfig, records, threads, warmup, iterations);
+        report.print(System.out);
+    }
+
+    private static Map<String, String> options(String[] args) {
+
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    public static Report replay(Map<String, String> connectorConfig, List<SourceRecord> records, int threads, int warmup, int iterations) throws InterruptedException {
+
+        // the measure starts when all the threads are warm, and the gc counters are read around it
+        long[] gcBefore = new long[2];
+        CyclicBarrier start = new CyclicBarrier(threads, () -> {
+            gcBefore[0] = gcCount();
+            gcBefore[1] = gcMillis();
+        });
+        List<Task> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<SourceRecord> share = new ArrayList<>();
+            for (int i = t; i < records.size(); i += threads) {
+                share.add(records.get(i));
+            }
+            tasks.add(new Task(new TransformChain(connectorConfig), share, warmup, iterations, start));
+        }
+
+        List<Thread> running = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(tasks.get(t), "replay-task-" + t);
+            thread.start();
+            running.add(thread);
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+
+        Report report = new Report(threads);
+        for (Task task : tasks) {
+            if (task.failure != null) {
+                throw new IllegalStateException("A replay task failed", task.failure);
+            }
+            report.add(task);
+        }
+        report.gcCount = gcCount() - gcBefore[0];
+        report.gcMillis = gcMillis() - gcBefore[1];
+        return report;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    private static final class Task implements Runnable {
+
+        private final TransformChain chain;
+        private final List<SourceRecord> records;
+        private final int warmup;
+        private final int iterations;
+        private final CyclicBarrier start;
+
+        // 32 buckets per power of two : the percentiles within 3%
+        private final LatencyHistogram latencies = new LatencyHistogram(5);
+        private long dropped;
+        private long allocatedBytes;
+        private long startNanos;
+        private long endNanos;
+        private Throwable failure;
+
+        private Task(TransformChain chain, List<SourceRecord> records, int warmup, int iterations, CyclicBarrier start) {
+            this.chain = chain;
+            this.records = records;
+            this.warmup = warmup;
+            this.iterations = iterations;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+
+            try (chain) {
+                for (int i = 0; i < warmup; i++) {
+                    for (SourceRecord record : records) {
+                        chain.apply(record);
+                    }
+                }
+                start.await();
+
+                long allocatedBefore = allocatedBytes();
+                startNanos = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    for (SourceRecord record : records) {
+                        long before = System.nanoTime();
+                        SourceRecord transformed = chain.apply(record);
+                        latencies.record(System.nanoTime() - before);
+                        if (transformed == null) {
+                            dropped++;
+                        }
+                    }
+                }
+                endNanos = System.nanoTime();
+                allocatedBytes = allocatedBytes() - allocatedBefore;
+            } catch (Throwable e) {
+                failure = e;
+                start.reset();
+            }
+        }
+    }
+
+    // the bytes allocated by the current thread so far, -1 when the jvm cannot tell
+    static long allocatedBytes() {
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public static final class Report {
+
+        private final int threads;
+        private final LatencyHistogram latencies = new LatencyHistogram(5);
+        private long dropped;
+        private long allocatedBytes;
+        private long startNanos = Long.MAX_VALUE;
+        private long endNanos = Long.MIN_VALUE;
+        private long gcCount;
+        private long gcMillis;
+
+        private Report(int threads) {
+            this.threads = threads;
+        }
+
+        private void add(Task task) {
+            latencies.add(task.latencies);
+            dropped += task.dropped;
+            allocatedBytes += task.allocatedBytes;
+            startNanos = Math.min(startNanos, task.startNanos);
+            endNanos = Math.max(endNanos, task.endNanos);
+        }
+
+        public long records() {
+            return latencies.count();
+        }
+
+        public double recordsPerSecond() {
+            return records() * 1e9 / Math.max(1, endNanos - startNanos);
+        }
+
+        public double bytesPerRecord() {
+            return (double) allocatedBytes / Math.max(1, records());
+        }
+
+        public void print(PrintStream out) {
+
+            double seconds = Math.max(1, endNanos - startNanos) / 1e9;
+            out.printf(Locale.ROOT, "records      : %d on %d threads, %d dropped by the transformers%n", records(), threads, dropped);
+            out.printf(Locale.ROOT, "throughput   : %.0f records/s%n", recordsPerSecond());
+            out.printf(Locale.ROOT, "latency (us) : p50 %.1f, p99 %.1f, p999 %.1f, max %.1f%n",
+                    latencies.percentile(0.5) / 1e3, latencies.percentile(0.99) / 1e3, latencies.percentile(0.999) / 1e3, latencies.max() / 1e3);
+            out.printf(Locale.ROOT, "allocation   : %.0f bytes/record, %.1f MB/s%n", bytesPerRecord(), allocatedBytes / seconds / (1024 * 1024));
+            out.printf(Locale.ROOT, "gc           : %d collections, %d ms%n", gcCount, gcMillis);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.benchmarks.replay;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class TransformChain implements AutoCloseable {
+
+    /*
+        The transformers of a connector config, in the order of "transforms", each one configured with its
+        transforms.<alias>.* settings, as the Connect worker builds them for a task. A transformer returning null drops the record.
+        The predicates are not supported : every transformer applies to every record.
+     */
+
+    private final List<Transformation<SourceRecord>> transformations = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    public TransformChain(Map<String, String> connectorConfig) {
+
+        String aliases = connectorConfig.getOrDefault("transforms", "").trim();
+        if (aliases.isEmpty()) {
+            return;
+        }
+        for (String alias : aliases.split("\\s*,\\s*")) {
+
+            Map<String, String> config = ConnectorConfig.withPrefix(connectorConfig, "transforms." + alias + ".");
+            String type = config.remove("type");
+            if (type == null) {
+                throw new IllegalArgumentException("No type for the transformer " + alias);
+            }
+            if (config.containsKey("predicate")) {
+                throw new IllegalArgumentException("Predicates are not supported, see the transformer " + alias);
+            }
+            config.remove("negate");
+            try {
+                Transformation<SourceRecord> transformation = (Transformation<SourceRecord>) Class.forName(type).getDeclaredConstructor().newInstance();
+                transformation.configure(config);
+                transformations.add(transformation);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot create the transformer " + alias + " of type " + type, e);
+            }
+        }
+    }
+
+    // null when a transformer drops the record
+    public SourceRecord apply(SourceRecord record) {
+
+        SourceRecord transformed = record;
+        for (Transformation<SourceRecord> transformation : transformations) {
+            transformed = transformation.apply(transformed);
+            if (transformed == null) {
+                return null;
+            }
+        }
+        return transformed;
+    }
+
+    public int size() {
+        return transformations.size();
+    }
+
+    @Override
+    public void close() {
+        transformations.forEach(Transformation::close);
+    }
+}
@@ -0,0 +1,363 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public final class CanonicalEncoder {
+
+    /*
+        Writes Connect values into a digest with a canonical binary encoding, without building any intermediate string :
+        - every value starts with a tag byte giving its type, so 1 (int) and "1" (string) never hash the same
+        - numbers are written as fixed-width big-endian bytes, dates as their epoch millis, decimals as scale + unscaled bytes
+        - strings and bytes are length-prefixed ( UTF-8 for strings )
+        - structs are written field by field in schema order, arrays element by element,
+          maps entry by entry sorted by key so that the map implementation does not change the hash
+        The bytes go through a small buffer flushed into the hasher, the encoder is reused from one record to the other.
+
+        Schemaless values ( maps and keys without schema ) are normalised first : their numbers depend on the way they were read,
+        an age is an Integer once and a Long after a round trip through the JsonConverter. Every integral number is then written
+        as an int64, every floating one as a float64 ( a float through its shortest decimal form, the one written in JSON ).
+        Bytes ( base64 strings in JSON ) and dates ( epoch millis ) are not normalised : they keep their own type.
+     */
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte INT8 = 2;
+    private static final byte INT16 = 3;
+    private static final byte INT32 = 4;
+    private static final byte INT64 = 5;
+    private static final byte FLOAT32 = 6;
+    private static final byte FLOAT64 = 7;
+    private static final byte STRING = 8;
+    private static final byte BYTES = 9;
+    private static final byte ARRAY = 10;
+    private static final byte MAP = 11;
+    private static final byte STRUCT = 12;
+    private static final byte DATE = 13;
+    private static final byte DECIMAL = 14;
+    private static final byte OTHER = 15;
+
+    private static final int BUFFER_SIZE = 512;
+
+    private final Hasher hasher;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private boolean schemaless;
+
+    public CanonicalEncoder(Hasher hasher) {
+        this.hasher = hasher;
+    }
+
+    public byte[] digest() {
+        flush();
+        return hasher.digest();
+    }
+
+    public int digestLength() {
+        return hasher.length();
+    }
+
+    public void digest(byte[] out) {
+        flush();
+        hasher.digest(out);
+    }
+
+    public void reset() {
+        position = 0;
+        schemaless = false;
+        hasher.reset();
+    }
+
+    public void writeValue(Object value) {
+
+        if (value == null) {
+            writeByte(NULL);
+        } else if (value instanceof String) {
+            writeByte(STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            if (schemaless) {
+                writeIntegral((Integer) value);
+            } else {
+                writeByte(INT32);
+                writeInt((Integer) value);
+            }
+        } else if (value instanceof Long) {
+            writeIntegral((Long) value);
+        } else if (value instanceof Struct) {
+            writeStruct((Struct) value);
+        } else if (value instanceof Boolean) {
+            writeByte(BOOLEAN);
+            writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Short) {
+            if (schemaless) {
+                writeIntegral((Short) value);
+            } else {
+                writeByte(INT16);
+                writeShort((Short) value);
+            }
+        } else if (value instanceof Byte) {
+            if (schemaless) {
+                writeIntegral((Byte) value);
+            } else {
+                writeByte(INT8);
+                writeByte((Byte) value);
+            }
+        } else if (value instanceof Double) {
+            writeFloating((Double) value);
+        } else if (value instanceof Float) {
+            if (schemaless) {
+                writeFloating(Double.parseDouble(Float.toString((Float) value)));
+            } else {
+                writeByte(FLOAT32);
+                writeInt(Float.floatToIntBits((Float) value));
+            }
+        } else if (value instanceof Date) {
+            writeByte(DATE);
+            writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            writeByte(DECIMAL);
+            writeInt(((BigDecimal) value).scale());
+            writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof byte[]) {
+            writeByte(BYTES);
+            writeBytes((byte[]) value);
+        } else if (value instanceof ByteBuffer) {
+            writeByte(BYTES);
+            writeBytes((ByteBuffer) value);
+        } else if (value instanceof List) {
+            writeList((List<?>) value);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value);
+        } else {
+            writeByte(OTHER);
+            writeString(value.toString());
+        }
+    }
+
+    public void writeStruct(Struct struct) {
+
+        List<Field> fields = struct.schema().fields();
+        writeByte(STRUCT);
+        writeInt(fields.size());
+        for (Field field : fields) {
+            writeValue(struct.get(field));
+        }
+    }
+
+    // a struct restricted to some of its fields, written like a struct of these fields
+    public void writeFields(Struct struct, Field[] fields) {
+
+        writeByte(STRUCT);
+        writeInt(fields.length);
+        for (Field field : fields) {
+            writeValue(struct.get(field));
+        }
+    }
+
+    // a schemaless record restricted to the selected keys, written like a map of these keys
+    public void writeFields(Map<?, ?> map, FieldSelection selection) {
+
+        schemaless = true;
+        if (selection.selectsAll()) {
+            writeMap(map);
+        } else {
+            List<Map.Entry<?, ?>> entries = new ArrayList<>(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (selection.selects(entry.getKey())) {
+                    entries.add(entry);
+                }
+            }
+            writeEntries(entries);
+        }
+        schemaless = false;
+    }
+
+    // a simple value without schema ( a schemaless key ), normalised like the values of a schemaless record
+    public void writeSchemalessValue(Object value) {
+
+        schemaless = true;
+        writeValue(value);
+        schemaless = false;
+    }
+
+    private void writeList(List<?> list) {
+
+        writeByte(ARRAY);
+        writeInt(list.size());
+        for (Object element : list) {
+            writeValue(element);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map) {
+
+        writeEntries(new ArrayList<>(map.entrySet()));
+    }
+
+    private void writeEntries(List<Map.Entry<?, ?>> entries) {
+
+        writeByte(MAP);
+        writeInt(entries.size());
+        entries.sort(KEY_ORDER);
+        for (Map.Entry<?, ?> entry : entries) {
+            writeValue(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    // keys of a Connect map all have the same type, they are compared naturally when they can be
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Map.Entry<?, ?>> KEY_ORDER = (left, right) -> {
+
+        Object leftKey = left.getKey();
+        Object rightKey = right.getKey();
+        if (leftKey == null || rightKey == null) {
+            return leftKey == null ? (rightKey == null ? 0 : -1) : 1;
+        }
+        if (leftKey instanceof Comparable && leftKey.getClass() == rightKey.getClass()) {
+            return ((Comparable) leftKey).compareTo(rightKey);
+        }
+        int byType = leftKey.getClass().getName().compareTo(rightKey.getClass().getName());
+        return byType != 0 ? byType : leftKey.toString().compareTo(rightKey.toString());
+    };
+
+    private void writeIntegral(long value) {
+
+        writeByte(INT64);
+        writeLong(value);
+    }
+
+    private void writeFloating(double value) {
+
+        writeByte(FLOAT64);
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    private void writeString(String value) {
+
+        int length = value.length();
+        writeInt(utf8Length(value));
+        for (int i = 0; i < length; i++) {
+
+            char c = value.charAt(i);
+            if (position + 4 > BUFFER_SIZE) {
+                flush();
+            }
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, encoded as '?' like String.getBytes does
+                buffer[position++] = (byte) '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private void writeBytes(byte[] value) {
+
+        writeInt(value.length);
+        flush();
+        hasher.update(value, 0, value.length);
+    }
+
+    private void writeBytes(ByteBuffer value) {
+
+        writeInt(value.remaining());
+        flush();
+        if (value.hasArray()) {
+            hasher.update(value.array(), value.arrayOffset() + value.position(), value.remaining());
+            return;
+        }
+        // direct buffer : copied by chunks through our buffer, without moving its position
+        for (int offset = value.position(); offset < value.limit(); offset++) {
+            if (position == BUFFER_SIZE) {
+                flush();
+            }
+            buffer[position++] = value.get(offset);
+        }
+    }
+
+    private void writeByte(byte value) {
+
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = value;
+    }
+
+    private void writeShort(short value) {
+
+        if (position + 2 > BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+
+        if (position + 4 > BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) (value >> 24);
+        buffer[position++] = (byte) (value >> 16);
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+
+        writeInt((int) (value >> 32));
+        writeInt((int) value);
+    }
+
+    private void flush() {
+
+        if (position > 0) {
+            hasher.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
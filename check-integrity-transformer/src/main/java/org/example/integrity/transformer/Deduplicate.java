@@ -0,0 +1,123 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.transformers.common.TransformMetrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class Deduplicate<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    /*
+        Drops a record when the previous record with the same key ( on the same topic ) had exactly the same value.
+        This is what a JDBC source in bulk or timestamp mode produces when it polls a view again and again.
+        The value is hashed with the same canonical encoding as IntegrityCheck ( xxHash64 ), only the last digest of each key is kept,
+        in an off-heap table of bounded size. Records without key are never dropped.
+        A tombstone ( a key without value ) goes through and makes the table forget its key : a row deleted then inserted again
+        with the same values is a new row downstream, it is not dropped.
+     */
+
+    public static final String MEMORY_BYTES_CONFIG = "memory.bytes";
+    public static final String TTL_MS_CONFIG = "ttl.ms";
+
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.define(new ConfigDef()
+            .define(MEMORY_BYTES_CONFIG, ConfigDef.Type.LONG, 16L * 1024 * 1024, ConfigDef.Range.atLeast(1024), ConfigDef.Importance.MEDIUM,
+                    "Off-heap memory used to remember the last digest of each key, 24 bytes per key")
+            .define(TTL_MS_CONFIG, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM,
+                    "A repeated record is let through again when the previous one is older than this, 0 to never let it through")
+            .define(IntegrityCheck.FIELDS_INCLUDE_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.MEDIUM, "Fields compared between two records, all of them when empty")
+            .define(IntegrityCheck.FIELDS_EXCLUDE_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.MEDIUM, "Fields ignored when comparing two records, like a polling date")
+            .define(IntegrityCheck.SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of distinct schemas for which the field plans are kept"));
+
+    private IntegrityHasher keyHasher;
+    private IntegrityHasher valueHasher;
+    private DigestTable table;
+    private ThreadLocal<byte[]> digests;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+
+    @Override
+    public void configure(Map<String, ?> map) {
+
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
+        int cacheSize = config.getInt(IntegrityCheck.SCHEMA_CACHE_SIZE_CONFIG);
+        keyHasher = new IntegrityHasher(HashAlgorithm.XXHASH64, Collections.emptyList(), Collections.emptyList(), null, IntegrityHasher.Scope.KEY, cacheSize);
+        valueHasher = new IntegrityHasher(HashAlgorithm.XXHASH64,
+                config.getList(IntegrityCheck.FIELDS_INCLUDE_CONFIG), config.getList(IntegrityCheck.FIELDS_EXCLUDE_CONFIG), null, IntegrityHasher.Scope.VALUE, cacheSize);
+        table = new DigestTable(config.getLong(MEMORY_BYTES_CONFIG), config.getLong(TTL_MS_CONFIG));
+        digests = ThreadLocal.withInitial(() -> new byte[Long.BYTES]);
+        metrics = TransformMetrics.acquire(config, getClass());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, keyHasher.planCache());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, valueHasher.planCache());
+        metrics.watch("DigestTable", table);
+    }
+
+    @Override
+    public R apply(R record) {
+
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
+        if (record.key() == null) {
+            metrics.passThrough();
+            return record;
+        }
+
+        // the same key on two topics is two different rows
+        long key = digest(keyHasher.encode(record, null)) ^ (record.topic().hashCode() * 0x9E3779B97F4A7C15L);
+        if (record.value() == null) {
+            table.remove(key);
+            metrics.passThrough();
+            return record;
+        }
+        long value = digest(valueHasher.encode(record, null));
+        // a dropped record is counted by the metrics ( RecordsDropped ) and by the table ( DigestTableHits )
+        if (table.putIfChanged(key, value, System.currentTimeMillis())) {
+            return null;
+        }
+        return record;
+    }
+
+    private long digest(CanonicalEncoder encoder) {
+
+        byte[] digest = digests.get();
+        encoder.digest(digest);
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = value << 8 | (digest[i] & 0xFF);
+        }
+        return value;
+    }
+
+    public DigestTable table() {
+        return table;
+    }
+
+    @Override
+    public void close() {
+        metrics.release(keyHasher.planCache(), valueHasher.planCache(), table);
+        metrics = TransformMetrics.DISABLED;
+        keyHasher.close();
+        valueHasher.close();
+        digests.remove();
+        table.close();
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+}
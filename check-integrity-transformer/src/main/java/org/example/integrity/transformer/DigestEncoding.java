@@ -0,0 +1,136 @@
+package org.example.integrity.transformer;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.kafka.connect.data.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Locale;
+
+public enum DigestEncoding {
+
+    /*
+        How the digest is written in the integrity field.
+        matches() compares a stored field with the first length bytes of a digest directly on its encoded form,
+        so that verifying a record does not decode the stored field nor encode the digest again.
+     */
+
+    // the raw digest bytes, the most compact form
+    BYTES(Schema.BYTES_SCHEMA) {
+        @Override
+        public Object encode(byte[] digest) {
+            return digest;
+        }
+
+        @Override
+        public boolean matches(Object stored, byte[] digest, int length) {
+
+            if (stored instanceof byte[]) {
+                byte[] bytes = (byte[]) stored;
+                if (bytes.length != length) {
+                    return false;
+                }
+                for (int i = 0; i < length; i++) {
+                    if (bytes[i] != digest[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (stored instanceof ByteBuffer) {
+                ByteBuffer bytes = (ByteBuffer) stored;
+                if (bytes.remaining() != length) {
+                    return false;
+                }
+                for (int i = 0; i < length; i++) {
+                    if (bytes.get(bytes.position() + i) != digest[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    },
+
+    BASE64(Schema.STRING_SCHEMA) {
+        @Override
+        public Object encode(byte[] digest) {
+            return Base64.getEncoder().encodeToString(digest);
+        }
+
+        @Override
+        public boolean matches(Object stored, byte[] digest, int length) {
+
+            if (!(stored instanceof String)) {
+                return false;
+            }
+            String chars = (String) stored;
+            if (chars.length() != 4 * ((length + 2) / 3)) {
+                return false;
+            }
+            // encode 3 bytes at a time and compare the 4 characters, '=' completing the last group
+            for (int in = 0, out = 0; in < length; in += 3, out += 4) {
+
+                int remaining = length - in;
+                int group = (digest[in] & 0xFF) << 16
+                        | (remaining > 1 ? (digest[in + 1] & 0xFF) << 8 : 0)
+                        | (remaining > 2 ? digest[in + 2] & 0xFF : 0);
+                if (chars.charAt(out) != BASE64_ALPHABET[group >> 18]
+                        || chars.charAt(out + 1) != BASE64_ALPHABET[(group >> 12) & 0x3F]
+                        || chars.charAt(out + 2) != (remaining > 1 ? BASE64_ALPHABET[(group >> 6) & 0x3F] : '=')
+                        || chars.charAt(out + 3) != (remaining > 2 ? BASE64_ALPHABET[group & 0x3F] : '=')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    },
+
+    HEX(Schema.STRING_SCHEMA) {
+        @Override
+        public Object encode(byte[] digest) {
+            return Hex.encodeHexString(digest);
+        }
+
+        @Override
+        public boolean matches(Object stored, byte[] digest, int length) {
+
+            if (!(stored instanceof String)) {
+                return false;
+            }
+            String chars = (String) stored;
+            if (chars.length() != 2 * length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                int high = Character.digit(chars.charAt(2 * i), 16);
+                int low = Character.digit(chars.charAt(2 * i + 1), 16);
+                if (high < 0 || low < 0 || (byte) (high << 4 | low) != digest[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    private static final char[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Schema schema;
+
+    DigestEncoding(Schema schema) {
+        this.schema = schema;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public abstract Object encode(byte[] digest);
+
+    public abstract boolean matches(Object stored, byte[] digest, int length);
+
+    public static DigestEncoding forName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.integrity.transformer;
+
+import org.example.transformers.common.CacheStats;
+import org.example.transformers.common.DirectBuffers;
+
+import java.nio.ByteBuffer;
+
+public final class DigestTable implements CacheStats {
+
+    /*
+        Bounded map from a key fingerprint to the digest of the last record seen for this key, stored off-heap.
+        The memory is split into buckets of 4 slots, a slot being ( key fingerprint, digest, last seen time ), 8 bytes each.
+        A key can live in two buckets ( like a cuckoo filter ) : when both are full, the slot seen the longest time ago is replaced.
+        Losing an entry is harmless, the next record for this key just goes through.
+        A hit is a record whose previous record had the same digest, a miss any other record.
+        The time of a slot is the time its record was let through : a suppressed record does not refresh it,
+        so with a TTL an unchanged row goes through again once per TTL, however often it is polled.
+        A deleted key is forgotten ( see remove ), so that the same row inserted again goes through.
+        The table is freed by close, it must not be used afterwards.
+     */
+
+    private static final int SLOT_BYTES = 3 * Long.BYTES;
+    private static final int BUCKET_SLOTS = 4;
+    private static final int BUCKET_BYTES = BUCKET_SLOTS * SLOT_BYTES;
+
+    // a fingerprint of 0 marks an empty slot
+    private static final long EMPTY = 0L;
+
+    private final ByteBuffer table;
+    private final int bucketMask;
+    private final long ttlMillis;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean closed;
+
+    public DigestTable(long memoryBytes, long ttlMillis) {
+
+        long buckets = Long.highestOneBit(Math.max(2L, memoryBytes / BUCKET_BYTES));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_BYTES));
+        this.table = ByteBuffer.allocateDirect((int) buckets * BUCKET_BYTES);
+        this.bucketMask = (int) buckets - 1;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Records the digest of the last record of this key, unless it is the same and the record is suppressed.
+     * @return true when the previous record of this key had the same digest ( and has not expired )
+     */
+    public synchronized boolean putIfChanged(long key, long digest, long now) {
+
+        checkOpen();
+        long fingerprint = fingerprint(key);
+        int first = bucketOffset(mix(fingerprint));
+        int second = bucketOffset(mix(fingerprint ^ 0x9E3779B97F4A7C15L));
+
+        int slot = find(first, second, fingerprint);
+        if (slot >= 0) {
+            boolean expired = ttlMillis > 0 && now - table.getLong(slot + 2 * Long.BYTES) > ttlMillis;
+            boolean same = !expired && table.getLong(slot + Long.BYTES) == digest;
+            if (same) {
+                hits++;
+            } else {
+                table.putLong(slot + Long.BYTES, digest);
+                table.putLong(slot + 2 * Long.BYTES, now);
+                misses++;
+            }
+            return same;
+        }
+
+        // unknown key : an empty slot in one of its buckets, or the oldest one
+        slot = find(first, EMPTY);
+        if (slot < 0) {
+            slot = find(second, EMPTY);
+        }
+        if (slot < 0) {
+            slot = oldest(first, second);
+            evictions++;
+        }
+        table.putLong(slot, fingerprint);
+        table.putLong(slot + Long.BYTES, digest);
+        table.putLong(slot + 2 * Long.BYTES, now);
+        misses++;
+        return false;
+    }
+
+    /**
+     * Forgets the last record of this key ( it has been deleted ) : the next record of this key goes through, whatever its digest.
+     */
+    public synchronized void remove(long key) {
+
+        checkOpen();
+        long fingerprint = fingerprint(key);
+        int slot = find(bucketOffset(mix(fingerprint)), bucketOffset(mix(fingerprint ^ 0x9E3779B97F4A7C15L)), fingerprint);
+        if (slot >= 0) {
+            table.putLong(slot, EMPTY);
+            table.putLong(slot + Long.BYTES, 0L);
+            table.putLong(slot + 2 * Long.BYTES, 0L);
+        }
+    }
+
+    // frees the off-heap table now, instead of when the garbage collector gets to it
+    public synchronized void close() {
+
+        if (!closed) {
+            closed = true;
+            DirectBuffers.free(table);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The digest table is closed");
+        }
+    }
+
+    private static long fingerprint(long key) {
+        return key == EMPTY ? 1L : key;
+    }
+
+    private int find(int first, int second, long fingerprint) {
+
+        int slot = find(first, fingerprint);
+        return slot < 0 ? find(second, fingerprint) : slot;
+    }
+
+    private int find(int bucket, long fingerprint) {
+
+        for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += SLOT_BYTES) {
+            if (table.getLong(slot) == fingerprint) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int oldest(int first, int second) {
+
+        int oldest = first;
+        for (int slot = first; slot < first + BUCKET_BYTES; slot += SLOT_BYTES) {
+            if (table.getLong(slot + 2 * Long.BYTES) < table.getLong(oldest + 2 * Long.BYTES)) {
+                oldest = slot;
+            }
+        }
+        for (int slot = second; slot < second + BUCKET_BYTES; slot += SLOT_BYTES) {
+            if (table.getLong(slot + 2 * Long.BYTES) < table.getLong(oldest + 2 * Long.BYTES)) {
+                oldest = slot;
+            }
+        }
+        return oldest;
+    }
+
+    private int bucketOffset(long hash) {
+        return ((int) hash & bucketMask) * BUCKET_BYTES;
+    }
+
+    // the finalizer of SplitMix64, to spread the fingerprints over the buckets
+    private static long mix(long value) {
+
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    public int capacity() {
+        return (bucketMask + 1) * BUCKET_SLOTS;
+    }
+
+    @Override
+    public synchronized long hits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long evictions() {
+        return evictions;
+    }
+}
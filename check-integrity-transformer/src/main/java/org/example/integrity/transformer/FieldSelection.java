@@ -0,0 +1,44 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class FieldSelection {
+
+    /*
+        The fields covered by the integrity hash : the included ones ( all of them when nothing is included ) minus the excluded ones.
+        For a struct the selection is resolved once per schema into the array of fields to read, in schema order.
+     */
+
+    private final Set<String> include;
+    private final Set<String> exclude;
+
+    public FieldSelection(List<String> include, List<String> exclude) {
+        this.include = new HashSet<>(include);
+        this.exclude = new HashSet<>(exclude);
+    }
+
+    public boolean selectsAll() {
+        return include.isEmpty() && exclude.isEmpty();
+    }
+
+    public boolean selects(Object name) {
+        return (include.isEmpty() || include.contains(name)) && !exclude.contains(name);
+    }
+
+    public Field[] select(Schema schema) {
+
+        List<Field> selected = new ArrayList<>(schema.fields().size());
+        for (Field field : schema.fields()) {
+            if (selects(field.name())) {
+                selected.add(field);
+            }
+        }
+        return selected.toArray(new Field[0]);
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.integrity.transformer;
+
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+public enum HashAlgorithm {
+
+    // cryptographic hash, the one to use when the hash must resist tampering
+    SHA256 {
+        @Override
+        public Hasher newHasher() {
+            return new MessageDigestHasher(DigestUtils.getSha256Digest());
+        }
+    },
+
+    // corruption detection only, computed with the CPU crc32 instructions by the JDK intrinsic
+    CRC32C {
+        @Override
+        public Hasher newHasher() {
+            return new Crc32cHasher();
+        }
+    },
+
+    /*
+        corruption detection only, 64 bits so collisions between distinct rows stay unlikely.
+        xxHash64 rather than XXH3 : lz4-java has a streaming xxHash64 fed chunk by chunk by the canonical encoder,
+        while the java XXH3 implementations ( zero-allocation-hashing ) only hash a whole input at once,
+        which would need the encoded record in one buffer. On rows of a few hundred bytes the two are close anyway.
+     */
+    XXHASH64 {
+        @Override
+        public Hasher newHasher() {
+            return new XxHash64Hasher();
+        }
+    };
+
+    public abstract Hasher newHasher();
+
+    public static HashAlgorithm forName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    private static final class MessageDigestHasher implements Hasher {
+
+        private final MessageDigest digest;
+
+        private MessageDigestHasher(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            digest.update(bytes, offset, length);
+        }
+
+        @Override
+        public int length() {
+            return digest.getDigestLength();
+        }
+
+        @Override
+        public void digest(byte[] out) {
+            try {
+                digest.digest(out, 0, digest.getDigestLength());
+            } catch (DigestException e) {
+                throw new IllegalStateException("Digest buffer too small", e);
+            }
+        }
+
+        @Override
+        public void reset() {
+            digest.reset();
+        }
+    }
+
+    private static final class Crc32cHasher implements Hasher {
+
+        private final CRC32C checksum = new CRC32C();
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            checksum.update(bytes, offset, length);
+        }
+
+        @Override
+        public int length() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void digest(byte[] out) {
+            int value = (int) checksum.getValue();
+            checksum.reset();
+            out[0] = (byte) (value >> 24);
+            out[1] = (byte) (value >> 16);
+            out[2] = (byte) (value >> 8);
+            out[3] = (byte) value;
+        }
+
+        @Override
+        public void reset() {
+            checksum.reset();
+        }
+    }
+
+    private static final class XxHash64Hasher implements Hasher {
+
+        // the pure java implementation : no native resource to release when the task stops
+        private final StreamingXXHash64 hash = XXHashFactory.fastestJavaInstance().newStreamingHash64(0L);
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            hash.update(bytes, offset, length);
+        }
+
+        @Override
+        public int length() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void digest(byte[] out) {
+            long value = hash.getValue();
+            hash.reset();
+            for (int i = Long.BYTES - 1; i >= 0; i--) {
+                out[i] = (byte) value;
+                value >>= 8;
+            }
+        }
+
+        @Override
+        public void reset() {
+            hash.reset();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.integrity.transformer;
+
+public interface Hasher {
+
+    /*
+        What the canonical encoder feeds : a digest (SHA-256) or a checksum (CRC32C, xxHash64) seen as a stream of bytes.
+        A hasher is reused from one record to the other, digest() returns the hash and resets it.
+     */
+
+    void update(byte[] bytes, int offset, int length);
+
+    int length();
+
+    // writes the hash in the first length() bytes of out, without allocating anything
+    void digest(byte[] out);
+
+    default byte[] digest() {
+        byte[] out = new byte[length()];
+        digest(out);
+        return out;
+    }
+
+    void reset();
+}
@@ -1,6 +1,5 @@
 package org.example.integrity.transformer;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Field;
@@ -11,17 +10,35 @@ import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.Requirements;
 import org.apache.kafka.connect.transforms.util.SchemaUtil;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Transformation<R> {
 
     public static final String INTEGRITY_FIELD_CONFIG = "field";
-
-    public static final ConfigDef CONFIG_DEF = new ConfigDef()
-            .define(INTEGRITY_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Integrity field name to add");
+    public static final String ALGORITHM_CONFIG = "algorithm";
+    public static final String ENCODING_CONFIG = "encoding";
+    public static final String FIELDS_INCLUDE_CONFIG = "fields.include";
+    public static final String FIELDS_EXCLUDE_CONFIG = "fields.exclude";
+    public static final String SCOPE_CONFIG = "scope";
+    public static final String SCHEMA_CACHE_SIZE_CONFIG = "schema.cache.size";
+
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.define(new ConfigDef()
+            .define(INTEGRITY_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Integrity field name to add")
+            .define(ALGORITHM_CONFIG, ConfigDef.Type.STRING, "sha256", ConfigDef.CaseInsensitiveValidString.in("sha256", "crc32c", "xxhash64"), ConfigDef.Importance.MEDIUM,
+                    "Hash algorithm : sha256, or crc32c / xxhash64 (much cheaper) when the hash is only used to detect corruption")
+            .define(ENCODING_CONFIG, ConfigDef.Type.STRING, "hex", ConfigDef.CaseInsensitiveValidString.in("hex", "base64", "bytes"), ConfigDef.Importance.MEDIUM,
+                    "How the hash is written in the integrity field : hex or base64 string, or raw bytes")
+            .define(FIELDS_INCLUDE_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.MEDIUM, "Fields covered by the hash, all of them when empty")
+            .define(FIELDS_EXCLUDE_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.MEDIUM, "Fields left out of the hash, like a creation date")
+            .define(SCOPE_CONFIG, ConfigDef.Type.STRING, null, IntegrityHasher.Scope.VALIDATOR, ConfigDef.Importance.MEDIUM,
+                    "Part of the record to hash : key, value or both. By default the part where the integrity field is added")
+            .define(SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of distinct schemas for which the field plans are kept"));
 
     protected abstract Schema operatingSchema(R kafkaRecord);
 
@@ -30,6 +47,13 @@ public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Tran
     protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
 
     private String fieldName;
+    private DigestEncoding encoding;
+    private IntegrityHasher hasher;
+
+    // per schema : the updated schema with the integrity field
+    private SchemaCache<UpdatePlan> updatePlans;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
 
     // implementation from the Transformation interface
     @Override
@@ -37,12 +61,32 @@ public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Tran
 
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
         fieldName = config.getString(INTEGRITY_FIELD_CONFIG);
+        encoding = DigestEncoding.forName(config.getString(ENCODING_CONFIG));
+        hasher = newHasher(config, fieldName);
+        updatePlans = new SchemaCache<>(config.getInt(SCHEMA_CACHE_SIZE_CONFIG));
+        metrics = TransformMetrics.acquire(config, getClass());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, updatePlans);
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, hasher.planCache());
     }
 
     @Override
     public R apply(R record) {
 
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
         if(record.value() == null) {
+            metrics.passThrough();
             return record;
         }
         if(operatingSchema(record) == null) {
@@ -58,15 +102,11 @@ public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Tran
 
         // extract fields of our record as a map ( key is the field name and value is the field value )
         Map<String,Object> value = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
-        String stringToHash = value.values()
-                .stream()
-                .map(Object::toString)
-                .collect(Collectors.joining());
-        String sha = DigestUtils.sha256Hex(stringToHash);
+        Object hash = hash(record);
 
         // create a new map with the updated value
         Map<String, Object> updatedValue = new HashMap<>(value);
-        updatedValue.put(fieldName,sha);
+        updatedValue.put(fieldName,hash);
 
         return newRecord(record, null, updatedValue);
     }
@@ -74,8 +114,26 @@ public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Tran
 
     private R insertIntegrityWithSchema(R record) {
 
-        //extracting the schema of the record
-        Schema schema = operatingSchema(record);
+        // the updated schema ( a copy of the schema with one more field ) is only built the first time we see this schema
+        UpdatePlan plan = updatePlans.computeIfAbsent(operatingSchema(record), this::compileUpdatePlan);
+
+        // extract the value of the record which is a struct and not a map anymore
+        Struct value = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
+
+        // hash the values of the fields, not their description
+        Object hash = hash(record);
+
+        // create a new struct with the updated value, copied by position
+        Struct updateValue = new Struct(plan.updatedSchema);
+        for (int i = 0; i < plan.sourceFields.length; i++) {
+            updateValue.put(plan.updatedFields[i], value.get(plan.sourceFields[i]));
+        }
+        updateValue.put(plan.integrityField, hash);
+
+        return newRecord(record, plan.updatedSchema, updateValue);
+    }
+
+    private UpdatePlan compileUpdatePlan(Schema schema) {
 
         // copy the schema of the record ( name, version, comments, etc )
         SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
@@ -86,29 +144,52 @@ public abstract class IntegrityCheck<R extends ConnectRecord<R>> implements Tran
         }
 
         // add one more field to our schema
-        Schema updatedSchema = builder.field(fieldName, Schema.STRING_SCHEMA).build();
+        Schema updatedSchema = SchemaInterner.intern(builder.field(fieldName, encoding.schema()).build());
+        return new UpdatePlan(updatedSchema, schema.fields().toArray(new Field[0]), updatedSchema.field(fieldName));
+    }
 
-        // extract the value of the record which is a struct and not a map anymore
-        Struct value = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
+    private Object hash(R record) {
+        return encoding.encode(hasher.encode(record, operatingValue(record)).digest());
+    }
 
-        String stringToHash = value.schema().fields()
-                .stream()
-                .map(Object::toString)
-                .collect(Collectors.joining());
-        String sha = DigestUtils.sha256Hex(stringToHash);
+    // the hashing options are shared with VerifyIntegrity
+    static IntegrityHasher newHasher(SimpleConfig config, String fieldName) {
+
+        String scope = config.getString(SCOPE_CONFIG);
+        return new IntegrityHasher(
+                HashAlgorithm.forName(config.getString(ALGORITHM_CONFIG)),
+                config.getList(FIELDS_INCLUDE_CONFIG),
+                config.getList(FIELDS_EXCLUDE_CONFIG),
+                fieldName,
+                scope == null ? null : IntegrityHasher.Scope.forName(scope),
+                config.getInt(SCHEMA_CACHE_SIZE_CONFIG));
+    }
 
-        // create a new struct with the updated value
-        Struct updateValue = new Struct(updatedSchema);
-        for (Field field : value.schema().fields()) {
-            updateValue.put(field.name(), value.get(field));
-        }
-        updateValue.put(fieldName, sha);
+    public SchemaCache<?> hashPlanCache() {
+        return hasher.planCache();
+    }
 
-        return newRecord(record, updatedSchema, updateValue);
+    // what we need to copy a struct of a given schema : source field i is written to updated field i, then the integrity field
+    private static final class UpdatePlan {
+
+        private final Schema updatedSchema;
+        private final Field[] sourceFields;
+        private final Field[] updatedFields;
+        private final Field integrityField;
+
+        private UpdatePlan(Schema updatedSchema, Field[] sourceFields, Field integrityField) {
+            this.updatedSchema = updatedSchema;
+            this.sourceFields = sourceFields;
+            this.updatedFields = updatedSchema.fields().subList(0, sourceFields.length).toArray(new Field[0]);
+            this.integrityField = integrityField;
+        }
     }
 
     @Override
     public void close() {
+        metrics.release(updatePlans, hasher.planCache());
+        metrics = TransformMetrics.DISABLED;
+        hasher.close();
     }
 
     @Override
@@ -0,0 +1,104 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.example.transformers.common.SchemaCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class IntegrityHasher {
+
+    /*
+        Hashing of a record shared by the transformer adding the integrity field (IntegrityCheck) and the one checking it (VerifyIntegrity),
+        so that both compute exactly the same thing : same algorithm, same canonical encoding, same fields.
+        The integrity field itself is never part of the hash.
+     */
+
+    public enum Scope {
+        KEY, VALUE, BOTH;
+
+        public static Scope forName(String name) {
+            for (Scope scope : values()) {
+                if (scope.name().equalsIgnoreCase(name)) {
+                    return scope;
+                }
+            }
+            return null;
+        }
+
+        // the scope is optional, by default the part of the record holding the integrity field is hashed
+        public static final ConfigDef.Validator VALIDATOR = ConfigDef.LambdaValidator.with(
+                (name, value) -> {
+                    if (value != null && forName((String) value) == null) {
+                        throw new ConfigException(name, value, "Expected one of key, value, both");
+                    }
+                }, () -> "[key, value, both]");
+    }
+
+    private final FieldSelection selection;
+    private final Scope scope;
+
+    // one encoder and its hasher per thread, reused from one record to the other
+    private final ThreadLocal<CanonicalEncoder> encoders;
+
+    // per schema : the fields to hash
+    private final SchemaCache<Field[]> plans;
+
+    public IntegrityHasher(HashAlgorithm algorithm, List<String> include, List<String> exclude, String integrityField, Scope scope, int cacheSize) {
+
+        List<String> excluded = new ArrayList<>(exclude);
+        if (integrityField != null) {
+            excluded.add(integrityField);
+        }
+        this.selection = new FieldSelection(include, excluded);
+        this.scope = scope;
+        this.encoders = ThreadLocal.withInitial(() -> new CanonicalEncoder(algorithm.newHasher()));
+        this.plans = new SchemaCache<>(cacheSize);
+    }
+
+    // writes the hashed part of the record, the caller then takes the digest from the returned encoder
+    public CanonicalEncoder encode(ConnectRecord<?> record, Object operatingValue) {
+
+        CanonicalEncoder encoder = encoders.get();
+        encoder.reset();
+        if (scope == null) {
+            writeFields(encoder, operatingValue, false);
+        } else {
+            if (scope != Scope.VALUE) {
+                writeFields(encoder, record.key(), record.keySchema() == null);
+            }
+            if (scope != Scope.KEY) {
+                writeFields(encoder, record.value(), record.valueSchema() == null);
+            }
+        }
+        return encoder;
+    }
+
+    private void writeFields(CanonicalEncoder encoder, Object value, boolean schemaless) {
+
+        if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            encoder.writeFields(struct, plans.computeIfAbsent(struct.schema(), selection::select));
+        } else if (value instanceof Map) {
+            encoder.writeFields((Map<?, ?>) value, selection);
+        } else if (schemaless) {
+            // a key which is a simple value ( string, number ... ) : nothing to select
+            encoder.writeSchemalessValue(value);
+        } else {
+            encoder.writeValue(value);
+        }
+    }
+
+    public SchemaCache<?> planCache() {
+        return plans;
+    }
+
+    public void close() {
+        encoders.remove();
+    }
+}
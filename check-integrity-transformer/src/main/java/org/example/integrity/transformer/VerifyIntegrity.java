@@ -0,0 +1,260 @@
+package org.example.integrity.transformer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.apache.kafka.connect.transforms.util.Requirements;
+import org.apache.kafka.connect.transforms.util.SchemaUtil;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+public abstract class VerifyIntegrity<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    /*
+        The sink side of IntegrityCheck : the hash is computed again, with the same options, and compared with the integrity field.
+        The options of IntegrityCheck (field, algorithm, encoding, fields.include, fields.exclude, scope) must have the same values here.
+     */
+
+    public static final String ON_MISMATCH_CONFIG = "on.mismatch";
+    public static final String MISMATCH_HEADER_CONFIG = "mismatch.header";
+    public static final String STRIP_FIELD_CONFIG = "strip.field";
+
+    public static final ConfigDef CONFIG_DEF = new ConfigDef(IntegrityCheck.CONFIG_DEF)
+            .define(ON_MISMATCH_CONFIG, ConfigDef.Type.STRING, "fail", ConfigDef.CaseInsensitiveValidString.in("drop", "header", "fail"), ConfigDef.Importance.HIGH,
+                    "What to do with a corrupted record : drop it, tag it with a header, or fail the task")
+            .define(MISMATCH_HEADER_CONFIG, ConfigDef.Type.STRING, "integrity.mismatch", ConfigDef.Importance.LOW, "Header added to a corrupted record when on.mismatch is header")
+            .define(STRIP_FIELD_CONFIG, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.MEDIUM, "Remove the integrity field once checked, so that sinks do not store it");
+
+    private enum OnMismatch {
+        DROP, HEADER, FAIL
+    }
+
+    protected abstract Schema operatingSchema(R kafkaRecord);
+
+    protected abstract Object operatingValue(R kafkaRecord);
+
+    protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
+
+    private String fieldName;
+    private DigestEncoding encoding;
+    private IntegrityHasher hasher;
+    private OnMismatch onMismatch;
+    private String mismatchHeader;
+    private boolean stripField;
+
+    // the computed digest is written here and compared in place with the stored one
+    private ThreadLocal<byte[]> digests;
+
+    // per schema : the schema without the integrity field
+    private SchemaCache<StripPlan> stripPlans;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+
+    @Override
+    public void configure(Map<String, ?> map) {
+
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
+        fieldName = config.getString(IntegrityCheck.INTEGRITY_FIELD_CONFIG);
+        encoding = DigestEncoding.forName(config.getString(IntegrityCheck.ENCODING_CONFIG));
+        hasher = IntegrityCheck.newHasher(config, fieldName);
+        onMismatch = OnMismatch.valueOf(config.getString(ON_MISMATCH_CONFIG).toUpperCase(Locale.ROOT));
+        mismatchHeader = config.getString(MISMATCH_HEADER_CONFIG);
+        stripField = config.getBoolean(STRIP_FIELD_CONFIG);
+        digests = ThreadLocal.withInitial(() -> new byte[64]);
+        stripPlans = new SchemaCache<>(config.getInt(IntegrityCheck.SCHEMA_CACHE_SIZE_CONFIG));
+        metrics = TransformMetrics.acquire(config, getClass());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, stripPlans);
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, hasher.planCache());
+    }
+
+    @Override
+    public R apply(R record) {
+
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
+        if(record.value() == null) {
+            metrics.passThrough();
+            return record;
+        }
+
+        boolean valid = verify(record);
+        if (!valid) {
+            switch (onMismatch) {
+                case DROP:
+                    log.warn("Dropping record with a wrong integrity field, topic {} partition {}", record.topic(), record.kafkaPartition());
+                    return null;
+                case FAIL:
+                    throw new DataException("Integrity check failed for a record of topic " + record.topic() + " partition " + record.kafkaPartition());
+                default:
+                    break;
+            }
+        }
+
+        R updatedRecord = stripField ? strip(record) : record;
+        if (!valid) {
+            // newRecord works on a copy of the headers, the original record is left untouched
+            if (updatedRecord == record) {
+                updatedRecord = newRecord(record, operatingSchema(record), operatingValue(record));
+            }
+            updatedRecord.headers().addBoolean(mismatchHeader, true);
+        }
+        return updatedRecord;
+    }
+
+    private static final String PURPOSE = "integrity field verification";
+
+    private boolean verify(R record) {
+
+        Object operatingValue = operatingValue(record);
+        Object stored;
+        if (operatingSchema(record) == null) {
+            stored = Requirements.requireMapOrNull(operatingValue, PURPOSE).get(fieldName);
+        } else {
+            Struct value = Requirements.requireStructOrNull(operatingValue, PURPOSE);
+            stored = value.schema().field(fieldName) == null ? null : value.get(fieldName);
+        }
+        if (stored == null) {
+            return false;
+        }
+
+        CanonicalEncoder encoder = hasher.encode(record, operatingValue);
+        byte[] digest = digests.get();
+        int length = encoder.digestLength();
+        if (digest.length < length) {
+            digest = new byte[length];
+            digests.set(digest);
+        }
+        encoder.digest(digest);
+        return encoding.matches(stored, digest, length);
+    }
+
+    private R strip(R record) {
+
+        if (operatingSchema(record) == null) {
+            Map<String, Object> value = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
+            Map<String, Object> updatedValue = new HashMap<>(value);
+            updatedValue.remove(fieldName);
+            return newRecord(record, null, updatedValue);
+        }
+
+        StripPlan plan = stripPlans.computeIfAbsent(operatingSchema(record), this::compileStripPlan);
+        if (plan == StripPlan.NOTHING_TO_STRIP) {
+            return record;
+        }
+        Struct value = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
+        Struct updatedValue = new Struct(plan.updatedSchema);
+        for (int i = 0; i < plan.sourceFields.length; i++) {
+            updatedValue.put(plan.updatedFields[i], value.get(plan.sourceFields[i]));
+        }
+        return newRecord(record, plan.updatedSchema, updatedValue);
+    }
+
+    private StripPlan compileStripPlan(Schema schema) {
+
+        if (schema.field(fieldName) == null) {
+            return StripPlan.NOTHING_TO_STRIP;
+        }
+
+        // copy the schema of the record ( name, version, comments, etc ) without the integrity field
+        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+        Field[] sourceFields = new Field[schema.fields().size() - 1];
+        int i = 0;
+        for (Field field : schema.fields()) {
+            if (!field.name().equals(fieldName)) {
+                builder.field(field.name(), field.schema());
+                sourceFields[i++] = field;
+            }
+        }
+        return new StripPlan(SchemaInterner.intern(builder.build()), sourceFields);
+    }
+
+    // what we need to copy a struct of a given schema without its integrity field : source field i is written to updated field i
+    private static final class StripPlan {
+
+        private static final StripPlan NOTHING_TO_STRIP = new StripPlan(null, null);
+
+        private final Schema updatedSchema;
+        private final Field[] sourceFields;
+        private final Field[] updatedFields;
+
+        private StripPlan(Schema updatedSchema, Field[] sourceFields) {
+            this.updatedSchema = updatedSchema;
+            this.sourceFields = sourceFields;
+            this.updatedFields = updatedSchema == null ? null : updatedSchema.fields().toArray(new Field[0]);
+        }
+    }
+
+    @Override
+    public void close() {
+        metrics.release(stripPlans, hasher.planCache());
+        metrics = TransformMetrics.DISABLED;
+        hasher.close();
+        digests.remove();
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    public static class Key<R extends ConnectRecord<R>> extends VerifyIntegrity<R> {
+
+        @Override
+        protected Schema operatingSchema(R kafkaRecord) {
+            return kafkaRecord.keySchema();
+        }
+
+        @Override
+        protected Object operatingValue(R kafkaRecord) {
+            return kafkaRecord.key();
+        }
+
+        @Override
+        protected R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue) {
+            return kafkaRecord.newRecord(kafkaRecord.topic(), kafkaRecord.kafkaPartition(), updatedSchema, updatedValue, kafkaRecord.valueSchema(), kafkaRecord.value(), kafkaRecord.timestamp());
+        }
+
+    }
+
+    public static class Value<R extends ConnectRecord<R>> extends VerifyIntegrity<R> {
+
+        @Override
+        protected Schema operatingSchema(R kafkaRecord) {
+            return kafkaRecord.valueSchema();
+        }
+
+        @Override
+        protected Object operatingValue(R kafkaRecord) {
+            return kafkaRecord.value();
+        }
+
+        @Override
+        protected R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue) {
+            return kafkaRecord.newRecord(kafkaRecord.topic(), kafkaRecord.kafkaPartition(), kafkaRecord.keySchema(), kafkaRecord.key(), updatedSchema, updatedValue, kafkaRecord.timestamp());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.transformers.common.AllocationBudgets;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+@EnabledIfSystemProperty(named = AllocationBudgets.PROPERTY, matches = AllocationBudgets.ENABLED)
+class AllocationBudgetTest {
+
+    /*
+        Every transformer of this module, Key and Value variants, with and without schema, on records of 8 and 32 scalar fields
+        ( int32, int64, string, float64 and boolean in turn ). The key and the value are the same struct ( or map ).
+        VerifyIntegrity checks records that went through IntegrityCheck, Deduplicate drops the same record again and again.
+     */
+
+    private static final Schema[] FIELD_SCHEMAS = {
+            Schema.INT32_SCHEMA, Schema.INT64_SCHEMA, Schema.STRING_SCHEMA, Schema.FLOAT64_SCHEMA, Schema.BOOLEAN_SCHEMA
+    };
+
+    private static final Map<String, ?> INTEGRITY_CONFIG = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity");
+
+    private static AllocationBudgets budgets;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+        budgets = new AllocationBudgets();
+    }
+
+    @AfterAll
+    static void writeBudgets() throws IOException {
+        budgets.writeIfUpdating();
+    }
+
+    static Stream<Arguments> shapes() {
+
+        List<Arguments> shapes = new ArrayList<>();
+        for (String transformer : new String[]{"integrity-check", "verify-integrity", "deduplicate"}) {
+            // Deduplicate reads both the key and the value
+            String[] sides = transformer.equals("deduplicate") ? new String[]{"record"} : new String[]{"key", "value"};
+            for (String side : sides) {
+                for (boolean withSchema : new boolean[]{true, false}) {
+                    for (int width : new int[]{8, 32}) {
+                        String shape = transformer + "." + side + "." + (withSchema ? "schema" : "schemaless") + ".width" + width;
+                        shapes.add(Arguments.of(shape, transformer, side.equals("key"), withSchema, width));
+                    }
+                }
+            }
+        }
+        return shapes.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("shapes")
+    void staysWithinItsBudget(String shape, String transformer, boolean key, boolean withSchema, int width) {
+
+        SourceRecord record = record(withSchema, width);
+        if (transformer.equals("verify-integrity")) {
+            Transformation<SourceRecord> integrityCheck = key ? new IntegrityCheck.Key<>() : new IntegrityCheck.Value<>();
+            integrityCheck.configure(INTEGRITY_CONFIG);
+            record = integrityCheck.apply(record);
+            integrityCheck.close();
+        }
+
+        Transformation<SourceRecord> transformation = create(transformer, key);
+        try {
+            transformation.configure(transformer.equals("deduplicate") ? Map.of() : INTEGRITY_CONFIG);
+            budgets.check(shape, transformation, record);
+        } finally {
+            transformation.close();
+        }
+    }
+
+    private static Transformation<SourceRecord> create(String transformer, boolean key) {
+
+        switch (transformer) {
+            case "integrity-check":
+                return key ? new IntegrityCheck.Key<>() : new IntegrityCheck.Value<>();
+            case "verify-integrity":
+                return key ? new VerifyIntegrity.Key<>() : new VerifyIntegrity.Value<>();
+            default:
+                return new Deduplicate<>();
+        }
+    }
+
+    private static SourceRecord record(boolean withSchema, int width) {
+
+        Random random = new Random(42);
+        SchemaBuilder builder = SchemaBuilder.struct().name("SyntheticRecord");
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < width; i++) {
+            Schema fieldSchema = FIELD_SCHEMAS[i % FIELD_SCHEMAS.length];
+            builder.field("f" + i, fieldSchema);
+            values.put("f" + i, value(fieldSchema, random));
+        }
+        if (!withSchema) {
+            return new SourceRecord(null, null, "synthetic", 0, null, values, null, new HashMap<>(values));
+        }
+        Schema schema = builder.build();
+        Struct value = new Struct(schema);
+        values.forEach(value::put);
+        return new SourceRecord(null, null, "synthetic", 0, schema, value, schema, value);
+    }
+
+    private static Object value(Schema schema, Random random) {
+
+        switch (schema.type()) {
+            case INT32:
+                return random.nextInt();
+            case INT64:
+                return random.nextLong();
+            case STRING:
+                return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            case FLOAT64:
+                return random.nextDouble() * 1000;
+            default:
+                return random.nextBoolean();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.integrity.transformer;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CanonicalEncoderTest {
+
+    /*
+        Golden vectors of the canonical encoding : the bytes fed to the hasher must never change,
+        otherwise the integrity fields already written by a previous version would no longer match.
+     */
+
+    private static String encoded(Object value) {
+
+        RecordingHasher hasher = new RecordingHasher();
+        CanonicalEncoder encoder = new CanonicalEncoder(hasher);
+        encoder.writeValue(value);
+        encoder.digest();
+        return hasher.hex();
+    }
+
+    private static String encodedSchemaless(Map<?, ?> map) {
+
+        RecordingHasher hasher = new RecordingHasher();
+        CanonicalEncoder encoder = new CanonicalEncoder(hasher);
+        encoder.writeFields(map, new FieldSelection(List.of(), List.of()));
+        encoder.digest();
+        return hasher.hex();
+    }
+
+    @Test
+    void writesEveryTypeWithItsTagAndFixedWidth() {
+
+        assertEquals("00", encoded(null));
+        assertEquals("0101", encoded(true));
+        assertEquals("02ff", encoded((byte) -1));
+        assertEquals("030102", encoded((short) 0x0102));
+        assertEquals("0400000001", encoded(1));
+        assertEquals("050000000000000001", encoded(1L));
+        assertEquals("063f800000", encoded(1.0f));
+        assertEquals("073ff0000000000000", encoded(1.0));
+        assertEquals("0800000004" + "4a61636b", encoded("Jack"));
+        assertEquals("0900000002" + "cafe", encoded(new byte[]{(byte) 0xCA, (byte) 0xFE}));
+        assertEquals("0900000002" + "cafe", encoded(ByteBuffer.wrap(new byte[]{(byte) 0xCA, (byte) 0xFE})));
+        assertEquals("0d" + "0000000000000064", encoded(new Date(100)));
+        assertEquals("0e" + "00000001" + "00000001" + "0f", encoded(new BigDecimal("1.5")));
+        assertEquals("0a00000002" + "0400000001" + "00", encoded(Arrays.asList(1, null)));
+    }
+
+    @Test
+    void writesStringsInUtf8() {
+
+        // 2 bytes, 3 bytes, a surrogate pair on 4 bytes and an unpaired surrogate written as '?'
+        assertEquals("0800000002" + "c3a9", encoded("é"));
+        assertEquals("0800000003" + "e282ac", encoded("€"));
+        assertEquals("0800000004" + "f09f9880", encoded("😀"));
+        assertEquals("0800000001" + "3f", encoded("\uD83D"));
+    }
+
+    @Test
+    void writesTheFieldsOfAStructInSchemaOrder() {
+
+        Schema schema = SchemaBuilder.struct().field("id", Schema.INT32_SCHEMA).field("name", Schema.STRING_SCHEMA).build();
+        Struct person = new Struct(schema).put("id", 1).put("name", "Jack");
+
+        assertEquals("0c00000002" + "0400000001" + "08000000044a61636b", encoded(person));
+    }
+
+    @Test
+    void writesTheEntriesOfAMapSortedByKey() {
+
+        Map<String, Object> inserted = new LinkedHashMap<>();
+        inserted.put("b", 1L);
+        inserted.put("a", "x");
+        Map<String, Object> hashed = new HashMap<>(inserted);
+        Map<String, Object> sorted = new TreeMap<>(inserted);
+
+        String expected = "0b00000002" + "080000000161" + "080000000178" + "080000000162" + "050000000000000001";
+        assertEquals(expected, encoded(inserted));
+        assertEquals(expected, encoded(hashed));
+        assertEquals(expected, encoded(sorted));
+    }
+
+    @Test
+    void writesLongValuesAcrossItsBuffer() {
+
+        String name = "x".repeat(1_000);
+        assertEquals("08000003e8" + Hex.encodeHexString(name.getBytes()), encoded(name));
+    }
+
+    @Test
+    void normalisesTheNumbersOfSchemalessRecords() {
+
+        String asLong = encodedSchemaless(Map.of("age", 28L, "rate", 1.1));
+
+        assertEquals(asLong, encodedSchemaless(Map.of("age", 28, "rate", 1.1f)));
+        assertEquals(asLong, encodedSchemaless(Map.of("age", (short) 28, "rate", 1.1)));
+        assertEquals(asLong, encodedSchemaless(Map.of("age", (byte) 28, "rate", 1.1)));
+        assertEquals("0b00000001" + "0800000003616765" + "05000000000000001c", encodedSchemaless(Map.of("age", 28)));
+        // nested values are normalised as well, the types still differ
+        assertEquals(encodedSchemaless(Map.of("ages", List.of(28L))), encodedSchemaless(Map.of("ages", List.of(28))));
+        assertNotEquals(encodedSchemaless(Map.of("age", "28")), encodedSchemaless(Map.of("age", 28)));
+    }
+
+    @Test
+    void keepsTheWidthOfTheNumbersOfAStruct() {
+
+        Schema schema = SchemaBuilder.struct().field("age", Schema.INT32_SCHEMA).build();
+        Struct person = new Struct(schema).put("age", 28);
+        RecordingHasher hasher = new RecordingHasher();
+        CanonicalEncoder encoder = new CanonicalEncoder(hasher);
+
+        encoder.writeFields(Map.of("age", 28), new FieldSelection(List.of(), List.of()));
+        encoder.digest();
+        encoder.writeValue(person);
+        encoder.digest();
+
+        assertEquals("0b00000001" + "0800000003616765" + "05000000000000001c" + "0c00000001" + "040000001c", hasher.hex());
+    }
+
+    // keeps every byte the encoder feeds, digest() returns nothing
+    private static final class RecordingHasher implements Hasher {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            bytes.write(input, offset, length);
+        }
+
+        @Override
+        public int length() {
+            return 0;
+        }
+
+        @Override
+        public void digest(byte[] out) {
+        }
+
+        @Override
+        public void reset() {
+            bytes.reset();
+        }
+
+        private String hex() {
+            return Hex.encodeHexString(bytes.toByteArray());
+        }
+    }
+}
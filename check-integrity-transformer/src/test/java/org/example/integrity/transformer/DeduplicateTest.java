@@ -0,0 +1,97 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DeduplicateTest {
+
+    private static final Schema KEY = SchemaBuilder.struct().name("PersonKey").field("id", Schema.INT32_SCHEMA).build();
+
+    private static final Schema PERSON = SchemaBuilder.struct().name("Person")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .field("polled_at", Schema.INT64_SCHEMA)
+            .build();
+
+    private Deduplicate<SourceRecord> deduplicate;
+
+    @BeforeEach
+    void configure() {
+        deduplicate = new Deduplicate<>();
+        deduplicate.configure(Map.of(IntegrityCheck.FIELDS_EXCLUDE_CONFIG, "polled_at"));
+    }
+
+    @AfterEach
+    void close() {
+        deduplicate.close();
+    }
+
+    private static SourceRecord row(String topic, int id, String name, long polledAt) {
+        return new SourceRecord(null, null, topic, 0, KEY, new Struct(KEY).put("id", id),
+                PERSON, new Struct(PERSON).put("id", id).put("name", name).put("polled_at", polledAt));
+    }
+
+    @Test
+    void dropsARowPolledAgainWithoutChange() {
+
+        assertNotNull(deduplicate.apply(row("persons", 1, "Jack", 1)));
+        assertNull(deduplicate.apply(row("persons", 1, "Jack", 2)));
+        assertNotNull(deduplicate.apply(row("persons", 1, "Jacky", 3)));
+        assertNull(deduplicate.apply(row("persons", 1, "Jacky", 4)));
+        // another row, and the same row on another topic
+        assertNotNull(deduplicate.apply(row("persons", 2, "Jacky", 5)));
+        assertNotNull(deduplicate.apply(row("archived-persons", 1, "Jacky", 6)));
+
+        assertEquals(2, deduplicate.table().hits());
+        assertEquals(4, deduplicate.table().misses());
+    }
+
+    @Test
+    void dropsASchemalessRowPolledAgainWithoutChange() {
+
+        SourceRecord first = new SourceRecord(null, null, "persons", 0, null, Map.of("id", 1), null, Map.of("id", 1, "name", "Jack", "polled_at", 1L));
+        // read back with other widths
+        SourceRecord second = new SourceRecord(null, null, "persons", 0, null, Map.of("id", 1L), null, Map.of("id", 1L, "name", "Jack", "polled_at", 2));
+
+        assertNotNull(deduplicate.apply(first));
+        assertNull(deduplicate.apply(second));
+    }
+
+    @Test
+    void letsTheRecordsWithoutKeyOrValueThrough() {
+
+        SourceRecord withoutKey = new SourceRecord(null, null, "persons", 0, null, null, Schema.STRING_SCHEMA, "Jack");
+        SourceRecord tombstone = new SourceRecord(null, null, "persons", 0, KEY, new Struct(KEY).put("id", 1), null, null);
+
+        assertSame(withoutKey, deduplicate.apply(withoutKey));
+        assertSame(withoutKey, deduplicate.apply(withoutKey));
+        assertSame(tombstone, deduplicate.apply(tombstone));
+        assertSame(tombstone, deduplicate.apply(tombstone));
+    }
+
+    @Test
+    void letsARowInsertedAgainAfterItsDeletionThrough() {
+
+        SourceRecord tombstone = new SourceRecord(null, null, "persons", 0, KEY, new Struct(KEY).put("id", 1), null, null);
+
+        assertNotNull(deduplicate.apply(row("persons", 1, "Jack", 1)));
+        assertSame(tombstone, deduplicate.apply(tombstone));
+        assertNotNull(deduplicate.apply(row("persons", 1, "Jack", 2)));
+        assertNull(deduplicate.apply(row("persons", 1, "Jack", 3)));
+        // the tombstone of another row forgets nothing of this one
+        assertNotNull(deduplicate.apply(new SourceRecord(null, null, "persons", 0, KEY, new Struct(KEY).put("id", 2), null, null)));
+        assertNull(deduplicate.apply(row("persons", 1, "Jack", 4)));
+    }
+}
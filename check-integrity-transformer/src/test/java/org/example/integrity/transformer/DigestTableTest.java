@@ -0,0 +1,112 @@
+package org.example.integrity.transformer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DigestTableTest {
+
+    @Test
+    void suppressesOnlyTheSameDigestAsThePreviousRecord() {
+
+        DigestTable table = new DigestTable(4096, 0);
+
+        assertFalse(table.putIfChanged(5L, 10L, 0));
+        assertTrue(table.putIfChanged(5L, 10L, 1));
+        assertFalse(table.putIfChanged(5L, 11L, 2));
+        assertTrue(table.putIfChanged(5L, 11L, 3));
+        // another key, and the key 0 which is not an empty slot
+        assertFalse(table.putIfChanged(6L, 11L, 4));
+        assertFalse(table.putIfChanged(0L, 11L, 5));
+        assertTrue(table.putIfChanged(0L, 11L, 6));
+
+        assertEquals(3, table.hits());
+        assertEquals(4, table.misses());
+        assertEquals(0, table.evictions());
+    }
+
+    @Test
+    void letsAnUnchangedRecordThroughOncePerTtl() {
+
+        DigestTable table = new DigestTable(4096, 1_000);
+
+        assertFalse(table.putIfChanged(1L, 10L, 0));
+        assertTrue(table.putIfChanged(1L, 10L, 500));
+        assertTrue(table.putIfChanged(1L, 10L, 1_000));
+        // the suppressed records did not refresh the time of the first one
+        assertFalse(table.putIfChanged(1L, 10L, 1_001));
+        assertTrue(table.putIfChanged(1L, 10L, 1_500));
+        assertTrue(table.putIfChanged(1L, 10L, 2_001));
+        assertFalse(table.putIfChanged(1L, 10L, 2_002));
+    }
+
+    @Test
+    void restartsTheTtlWhenTheRecordChanges() {
+
+        DigestTable table = new DigestTable(4096, 1_000);
+
+        assertFalse(table.putIfChanged(1L, 10L, 0));
+        assertFalse(table.putIfChanged(1L, 11L, 800));
+        assertTrue(table.putIfChanged(1L, 11L, 1_500));
+        assertFalse(table.putIfChanged(1L, 11L, 1_801));
+    }
+
+    @Test
+    void evictsTheOldestKeysWhenFull() {
+
+        DigestTable table = new DigestTable(1024, 0);
+        int keys = 4 * table.capacity();
+        for (int key = 1; key <= keys; key++) {
+            assertFalse(table.putIfChanged(key, 10L, key));
+        }
+
+        // the last keys are still there, most of the first ones were replaced
+        int suppressed = 0;
+        for (int key = 1; key <= keys; key++) {
+            if (table.putIfChanged(key, 10L, keys + key)) {
+                suppressed++;
+            }
+        }
+        assertTrue(table.evictions() >= keys - table.capacity(), () -> table.evictions() + " evictions");
+        assertTrue(suppressed <= table.capacity(), suppressed + " suppressed");
+        assertTrue(table.putIfChanged(keys, 10L, 3L * keys));
+    }
+
+    @Test
+    void keepsAPowerOfTwoOfBuckets() {
+
+        assertEquals(32, new DigestTable(1024, 0).capacity());
+        assertEquals(8, new DigestTable(1, 0).capacity());
+    }
+
+    @Test
+    void forgetsARemovedKey() {
+
+        DigestTable table = new DigestTable(4096, 0);
+
+        assertFalse(table.putIfChanged(5L, 10L, 0));
+        assertFalse(table.putIfChanged(6L, 10L, 0));
+        table.remove(5L);
+        // unknown keys are ignored
+        table.remove(7L);
+
+        assertFalse(table.putIfChanged(5L, 10L, 1));
+        assertTrue(table.putIfChanged(5L, 10L, 2));
+        assertTrue(table.putIfChanged(6L, 10L, 3));
+    }
+
+    @Test
+    void cannotBeUsedOnceClosed() {
+
+        DigestTable table = new DigestTable(4096, 0);
+        table.putIfChanged(5L, 10L, 0);
+        table.close();
+        table.close();
+
+        assertThrows(IllegalStateException.class, () -> table.putIfChanged(5L, 10L, 1));
+        assertThrows(IllegalStateException.class, () -> table.remove(5L));
+    }
+}
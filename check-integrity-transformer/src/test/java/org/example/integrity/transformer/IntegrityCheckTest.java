@@ -0,0 +1,157 @@
+package org.example.integrity.transformer;
+
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntegrityCheckTest {
+
+    private static final Schema PERSON = SchemaBuilder.struct().name("Person")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .build();
+
+    // the canonical encoding of the person below ( see CanonicalEncoderTest )
+    private static final String ENCODED_PERSON = "0c00000002" + "0400000001" + "08000000044a61636b";
+
+    private static SourceRecord record(Object key, Schema valueSchema, Object value) {
+        return new SourceRecord(null, null, "persons", 0, null, key, valueSchema, value);
+    }
+
+    private static Struct person() {
+        return new Struct(PERSON).put("id", 1).put("name", "Jack");
+    }
+
+    private static Object integrity(Map<String, String> config, SourceRecord record) {
+
+        IntegrityCheck<SourceRecord> transformation = new IntegrityCheck.Value<>();
+        transformation.configure(config);
+        try {
+            Object value = transformation.apply(record).value();
+            return value instanceof Struct ? ((Struct) value).get("integrity") : ((Map<?, ?>) value).get("integrity");
+        } finally {
+            transformation.close();
+        }
+    }
+
+    // pinned digests : a change here breaks the integrity fields already written
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+            "sha256,   dda06a02fae17910b9ccdfb1d5ee0e020646426cd54f137c9e25fcf64a737798",
+            "crc32c,   a57cd6b2",
+            "xxhash64, 378b607ded8610b7"
+    })
+    void computesTheSameDigestOverReleases(String algorithm, String expected) throws Exception {
+
+        Map<String, String> config = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity", IntegrityCheck.ALGORITHM_CONFIG, algorithm);
+        Object integrity = integrity(config, record(null, PERSON, person()));
+
+        assertEquals(expected, integrity);
+        assertEquals(expected, Hex.encodeHexString(reference(algorithm, Hex.decodeHex(ENCODED_PERSON))));
+    }
+
+    // the same digest with a one-shot implementation of each algorithm
+    private static byte[] reference(String algorithm, byte[] encoded) throws Exception {
+
+        switch (algorithm) {
+            case "sha256":
+                return MessageDigest.getInstance("SHA-256").digest(encoded);
+            case "crc32c":
+                CRC32C crc = new CRC32C();
+                crc.update(encoded);
+                return ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array();
+            default:
+                long hash = XXHashFactory.safeInstance().hash64().hash(encoded, 0, encoded.length, 0L);
+                return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+        }
+    }
+
+    @Test
+    void writesTheDigestWithEachEncoding() throws Exception {
+
+        byte[] digest = reference("sha256", Hex.decodeHex(ENCODED_PERSON));
+
+        for (DigestEncoding encoding : DigestEncoding.values()) {
+
+            Map<String, String> config = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity", IntegrityCheck.ENCODING_CONFIG, encoding.name().toLowerCase());
+            Object integrity = integrity(config, record(null, PERSON, person()));
+
+            assertTrue(encoding.matches(integrity, digest, digest.length), encoding::name);
+            switch (encoding) {
+                case HEX:
+                    assertEquals(Hex.encodeHexString(digest), integrity);
+                    break;
+                case BASE64:
+                    assertEquals(Base64.getEncoder().encodeToString(digest), integrity);
+                    break;
+                default:
+                    assertArrayEquals(digest, (byte[]) integrity);
+            }
+        }
+    }
+
+    @Test
+    void matchesOnlyTheSameDigest() {
+
+        byte[] digest = {1, 2, 3, 4, 5};
+        byte[] other = {1, 2, 3, 4, 6};
+
+        for (DigestEncoding encoding : DigestEncoding.values()) {
+            Object stored = encoding.encode(digest);
+            assertTrue(encoding.matches(stored, digest, digest.length), encoding::name);
+            assertFalse(encoding.matches(stored, other, other.length), encoding::name);
+            assertFalse(encoding.matches(stored, digest, digest.length - 1), encoding::name);
+        }
+        assertTrue(DigestEncoding.BYTES.matches(ByteBuffer.wrap(digest), digest, digest.length));
+        assertFalse(DigestEncoding.HEX.matches("zz02030405", digest, digest.length));
+    }
+
+    @Test
+    void hashesASchemalessRecordWhateverTheWidthOfItsNumbers() {
+
+        Map<String, String> config = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity");
+        Map<String, Object> read = new HashMap<>(Map.of("id", 1, "name", "Jack", "score", 1.5f));
+        Map<String, Object> readAgain = new HashMap<>(Map.of("id", 1L, "name", "Jack", "score", 1.5));
+
+        assertEquals(integrity(config, record(null, null, read)), integrity(config, record(null, null, readAgain)));
+    }
+
+    @Test
+    void ignoresTheExcludedFieldsAndHashesTheKeyWhenAsked() {
+
+        Schema schema = SchemaBuilder.struct().name("Person")
+                .field("id", Schema.INT32_SCHEMA)
+                .field("name", Schema.STRING_SCHEMA)
+                .field("creation_date", Schema.INT64_SCHEMA)
+                .build();
+        Struct first = new Struct(schema).put("id", 1).put("name", "Jack").put("creation_date", 1L);
+        Struct second = new Struct(schema).put("id", 1).put("name", "Jack").put("creation_date", 2L);
+
+        Map<String, String> excluded = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity", IntegrityCheck.FIELDS_EXCLUDE_CONFIG, "creation_date");
+        assertEquals(integrity(excluded, record(null, schema, first)), integrity(excluded, record(null, schema, second)));
+        // the plan of the schema without the excluded field is the person itself
+        assertEquals(integrity(Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity"), record(null, PERSON, person())),
+                integrity(excluded, record(null, schema, first)));
+
+        Map<String, String> both = Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity", IntegrityCheck.SCOPE_CONFIG, "both");
+        assertFalse(integrity(both, record(1, schema, first)).equals(integrity(both, record(2, schema, first))));
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.integrity.transformer;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifyIntegrityTest {
+
+    private static final Schema PERSON = SchemaBuilder.struct().name("Person")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .build();
+
+    private static SourceRecord record(Schema schema, Object value) {
+        return new SourceRecord(null, null, "persons", 0, Schema.STRING_SCHEMA, "key", schema, value);
+    }
+
+    private static SourceRecord person() {
+        return record(PERSON, new Struct(PERSON).put("id", 1).put("name", "Jack"));
+    }
+
+    private static SourceRecord withIntegrity(SourceRecord record, Map<String, String> config) {
+
+        Transformation<SourceRecord> integrityCheck = new IntegrityCheck.Value<>();
+        integrityCheck.configure(config);
+        try {
+            return integrityCheck.apply(record);
+        } finally {
+            integrityCheck.close();
+        }
+    }
+
+    private static SourceRecord verified(SourceRecord record, Map<String, String> config) {
+
+        Transformation<SourceRecord> verifyIntegrity = new VerifyIntegrity.Value<>();
+        verifyIntegrity.configure(config);
+        try {
+            return verifyIntegrity.apply(record);
+        } finally {
+            verifyIntegrity.close();
+        }
+    }
+
+    private static Map<String, String> config(String... pairs) {
+
+        Map<String, String> config = new HashMap<>(Map.of(IntegrityCheck.INTEGRITY_FIELD_CONFIG, "integrity"));
+        for (int i = 0; i < pairs.length; i += 2) {
+            config.put(pairs[i], pairs[i + 1]);
+        }
+        return config;
+    }
+
+    // the record changed after IntegrityCheck, the integrity field left as it was
+    private static SourceRecord tampered(SourceRecord record) {
+        Struct value = (Struct) record.value();
+        Struct changed = new Struct(value.schema()).put("id", 1).put("name", "Jacky").put("integrity", value.get("integrity"));
+        return record(value.schema(), changed);
+    }
+
+    private static List<String> fieldNames(Schema schema) {
+        return schema.fields().stream().map(field -> field.name()).collect(Collectors.toList());
+    }
+
+    @Test
+    void letsAValidRecordThroughWithoutItsIntegrityField() {
+
+        SourceRecord verified = verified(withIntegrity(person(), config()), config());
+
+        assertEquals(List.of("id", "name"), fieldNames(verified.valueSchema()));
+        assertEquals("Jack", ((Struct) verified.value()).get("name"));
+        assertNull(verified.headers().lastWithName("integrity.mismatch"));
+    }
+
+    @Test
+    void keepsTheIntegrityFieldWhenAsked() {
+
+        SourceRecord record = withIntegrity(person(), config());
+        SourceRecord verified = verified(record, config(VerifyIntegrity.STRIP_FIELD_CONFIG, "false"));
+
+        assertSame(record, verified);
+    }
+
+    @Test
+    void failsOnACorruptedRecordByDefault() {
+
+        SourceRecord record = tampered(withIntegrity(person(), config()));
+
+        assertThrows(DataException.class, () -> verified(record, config()));
+    }
+
+    @Test
+    void dropsACorruptedRecord() {
+
+        SourceRecord record = tampered(withIntegrity(person(), config()));
+
+        assertNull(verified(record, config(VerifyIntegrity.ON_MISMATCH_CONFIG, "drop")));
+        assertNotNull(verified(withIntegrity(person(), config()), config(VerifyIntegrity.ON_MISMATCH_CONFIG, "drop")));
+    }
+
+    @Test
+    void tagsACorruptedRecordWithAHeader() {
+
+        SourceRecord record = tampered(withIntegrity(person(), config()));
+
+        SourceRecord stripped = verified(record, config(VerifyIntegrity.ON_MISMATCH_CONFIG, "header"));
+        assertEquals(true, stripped.headers().lastWithName("integrity.mismatch").value());
+        assertEquals(List.of("id", "name"), fieldNames(stripped.valueSchema()));
+
+        SourceRecord kept = verified(record, config(VerifyIntegrity.ON_MISMATCH_CONFIG, "header", VerifyIntegrity.STRIP_FIELD_CONFIG, "false",
+                VerifyIntegrity.MISMATCH_HEADER_CONFIG, "corrupted"));
+        assertEquals(true, kept.headers().lastWithName("corrupted").value());
+        assertEquals(record.value(), kept.value());
+        // the headers of the original record are left untouched
+        assertTrue(record.headers().isEmpty());
+    }
+
+    @Test
+    void seesARecordWithoutIntegrityFieldAsCorrupted() {
+
+        SourceRecord verified = verified(person(), config(VerifyIntegrity.ON_MISMATCH_CONFIG, "header"));
+
+        assertEquals(true, verified.headers().lastWithName("integrity.mismatch").value());
+        assertSame(PERSON, verified.valueSchema());
+    }
+
+    @Test
+    void verifiesASchemalessRecord() {
+
+        SourceRecord record = withIntegrity(record(null, Map.of("id", 1, "name", "Jack")), config());
+        SourceRecord verified = verified(record, config());
+        assertEquals(Map.of("id", 1, "name", "Jack"), verified.value());
+
+        Map<Object, Object> changed = new HashMap<>((Map<?, ?>) record.value());
+        changed.put("name", "Jacky");
+        assertNull(verified(record(null, changed), config(VerifyIntegrity.ON_MISMATCH_CONFIG, "drop")));
+    }
+
+    @Test
+    void verifiesWithTheSameAlgorithmAndEncodingAsTheCheck() {
+
+        for (String algorithm : new String[]{"sha256", "crc32c", "xxhash64"}) {
+            for (String encoding : new String[]{"hex", "base64", "bytes"}) {
+
+                Map<String, String> config = config(IntegrityCheck.ALGORITHM_CONFIG, algorithm, IntegrityCheck.ENCODING_CONFIG, encoding,
+                        VerifyIntegrity.ON_MISMATCH_CONFIG, "drop");
+                SourceRecord record = withIntegrity(person(), config);
+
+                assertNotNull(verified(record, config), algorithm + " " + encoding);
+                assertNull(verified(tampered(record), config), algorithm + " " + encoding);
+            }
+        }
+        // another algorithm on the sink side never matches
+        SourceRecord record = withIntegrity(person(), config(IntegrityCheck.ALGORITHM_CONFIG, "crc32c"));
+        assertNull(verified(record, config(IntegrityCheck.ALGORITHM_CONFIG, "xxhash64", VerifyIntegrity.ON_MISMATCH_CONFIG, "drop")));
+    }
+
+    @Test
+    void verifiesTheKey() {
+
+        Transformation<SourceRecord> integrityCheck = new IntegrityCheck.Key<>();
+        Transformation<SourceRecord> verifyIntegrity = new VerifyIntegrity.Key<>();
+        integrityCheck.configure(config());
+        verifyIntegrity.configure(config());
+        try {
+            SourceRecord record = new SourceRecord(null, null, "persons", 0, PERSON, new Struct(PERSON).put("id", 1).put("name", "Jack"), Schema.STRING_SCHEMA, "value");
+            SourceRecord verified = verifyIntegrity.apply(integrityCheck.apply(record));
+
+            assertEquals(record.key(), verified.key());
+            assertEquals("value", verified.value());
+        } finally {
+            integrityCheck.close();
+            verifyIntegrity.close();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package org.example.json.transformers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.apache.kafka.connect.transforms.util.Requirements;
+import org.apache.kafka.connect.transforms.util.SchemaUtil;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.json.transformers.converters.InputFormat;
+import org.example.json.transformers.converters.JsonInput;
+import org.example.json.transformers.decoders.JsonDecoder;
+import org.example.json.transformers.decoders.JsonDecoders;
+import org.example.json.transformers.schemas.FingerprintingParser;
+import org.example.json.transformers.schemas.InferredSchemaCache;
+import org.example.json.transformers.schemas.JsonSchemaInference;
+import org.example.json.transformers.schemas.SchemaExpression;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+public abstract class JsonToStruct<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    /*
+        The generic version of PurchaseItemToArray : a json string field becomes a Connect value ( struct, array, map, ... ) of any shape.
+        The shape is declared with the schema option ( a type expression, see SchemaExpression ), or inferred from the json documents :
+        a document is only inferred when its shape ( see ShapeFingerprint ) has not been seen yet, and its schema widened with the previous ones.
+        The document is first decoded with the schema of the previous one, its fingerprint being read in the same pass : when its shape is known
+        and has this schema, which is the usual case, the document is read once.
+        Each schema is compiled once into a decoder, so that a record costs about what a parser written by hand for this shape would.
+     */
+
+    public static final String JSON_FIELD_CONFIG = "field";
+    public static final String SCHEMA_CONFIG = "schema";
+    public static final String FORMAT_CONFIG = "format";
+    public static final String SCHEMA_CACHE_SIZE_CONFIG = "schema.cache.size";
+    public static final String INFERENCE_CACHE_SIZE_CONFIG = "inference.cache.size";
+    public static final String INFERENCE_WIDEN_CONFIG = "inference.widen";
+
+    public static final ConfigDef CONFIG_DEF = TransformMetrics.define(new ConfigDef()
+            .define(JSON_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Json field name to decode")
+            .define(SCHEMA_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.LambdaValidator.with(
+                            (name, value) -> {
+                                if (value == null) {
+                                    return;
+                                }
+                                try {
+                                    SchemaExpression.parse((String) value);
+                                } catch (IllegalArgumentException e) {
+                                    throw new ConfigException(name, value, e.getMessage());
+                                }
+                            }, () -> "a type expression like array<struct<item_id:int32,name:string,price:int32?>>"), ConfigDef.Importance.HIGH,
+                    "Schema of the json field, inferred from the json documents when not set")
+            .define(FORMAT_CONFIG, ConfigDef.Type.STRING, "json", InputFormat.VALIDATOR, ConfigDef.Importance.MEDIUM, "Encoding of the json field : json, or smile / cbor ( binary json, in a bytes field )")
+            .define(SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                    "Number of distinct record schemas, and of distinct json schemas, for which the updated schema and the decoder are kept")
+            .define(INFERENCE_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 64, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                    "Number of distinct json shapes for which the inferred schema is kept, when the schema is not set")
+            .define(INFERENCE_WIDEN_CONFIG, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.LOW,
+                    "Widen the inferred schema with each new json shape, so that all the documents share one schema, instead of one schema per shape"));
+
+    protected abstract Schema operatingSchema(R kafkaRecord);
+
+    protected abstract Object operatingValue(R kafkaRecord);
+
+    protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
+
+    private String fieldName;
+    private JsonFactory factory;
+
+    // the declared schema, or the schemas inferred per json shape
+    private Schema declaredSchema;
+    private InferredSchemaCache inferredSchemas;
+    // the schema of the previous document, null before the first one
+    private Schema previousSchema;
+
+    // per json schema : its decoder
+    private SchemaCache<JsonDecoder> decoders;
+
+    // per record schema : the updated schema with the decoded field ( per json schema )
+    private SchemaCache<UpdatePlan> updatePlans;
+    private int schemaCacheSize;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+
+    @Override
+    public void configure(Map<String, ?> map) {
+
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
+        fieldName = config.getString(JSON_FIELD_CONFIG);
+        factory = InputFormat.forName(config.getString(FORMAT_CONFIG)).factory();
+        String schema = config.getString(SCHEMA_CONFIG);
+        if (schema != null) {
+            declaredSchema = SchemaExpression.optional(SchemaExpression.parse(schema));
+        } else {
+            inferredSchemas = new InferredSchemaCache(config.getInt(INFERENCE_CACHE_SIZE_CONFIG), config.getBoolean(INFERENCE_WIDEN_CONFIG));
+        }
+        schemaCacheSize = config.getInt(SCHEMA_CACHE_SIZE_CONFIG);
+        decoders = new SchemaCache<>(schemaCacheSize);
+        updatePlans = new SchemaCache<>(schemaCacheSize);
+        metrics = TransformMetrics.acquire(config, getClass());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, decoders);
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, updatePlans);
+        metrics.watch("InferredSchemaCache", inferredSchemas);
+    }
+
+    @Override
+    public R apply(R record) {
+
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
+        try {
+            if(record.value() == null) {
+                metrics.passThrough();
+                return record;
+            }
+            if(operatingSchema(record) == null) {
+                return decodeWithoutSchema(record);
+            }else {
+                return decodeWithSchema(record);
+            }
+        } catch (IOException e) {
+            log.error("Error during parsing on the JsonToStruct transformer", e);
+            metrics.parseFailure();
+            return record;
+        }
+    }
+
+    private static final String PURPOSE = "decode json field";
+
+    private R decodeWithoutSchema(R record) throws IOException {
+
+        Map<String, Object> recordValues = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
+        Map<String, Object> updatedRecordValues = new HashMap<>(recordValues);
+        updatedRecordValues.put(fieldName, decode(recordValues.get(fieldName)).value);
+        return newRecord(record, null, updatedRecordValues);
+    }
+
+    private R decodeWithSchema(R record) throws IOException {
+
+        Struct recordValues = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
+
+        UpdatePlan plan = updatePlans.computeIfAbsent(operatingSchema(record), this::compileUpdatePlan);
+        Decoded decoded = decode(recordValues.get(fieldName));
+        UpdatedSchema updated = plan.updatedSchemas.computeIfAbsent(decoded.schema, plan::compileUpdatedSchema);
+
+        Struct recordUpdatedValues = new Struct(updated.schema);
+        for (int i = 0; i < plan.sourceFields.length; i++) {
+            recordUpdatedValues.put(updated.fields[i], i == plan.jsonFieldIndex ? decoded.value : recordValues.get(plan.sourceFields[i]));
+        }
+        return newRecord(record, updated.schema, recordUpdatedValues);
+    }
+
+    // the document decoded with the declared schema, or with the schema of its shape, inferred only when the shape is new
+    private Decoded decode(Object json) throws IOException {
+
+        if (declaredSchema != null) {
+            return new Decoded(declaredSchema, json == null ? null : decode(json, declaredSchema));
+        }
+        if (json == null) {
+            Schema latest = inferredSchemas.latest();
+            return new Decoded(latest == null ? JsonSchemaInference.UNKNOWN_SCHEMA : latest, null);
+        }
+
+        // decoded with the schema of the previous document while reading its fingerprint, or only read for its fingerprint
+        Schema guessed = previousSchema;
+        Object value = null;
+        boolean decoded = false;
+        long fingerprint;
+        try (FingerprintingParser parser = firstToken(new FingerprintingParser(JsonInput.createParser(factory, json)))) {
+            if (guessed != null) {
+                try {
+                    value = decode(parser, guessed);
+                    decoded = true;
+                } catch (JsonProcessingException e) {
+                    // not a document of this schema, its shape tells which one
+                }
+            }
+            if (!decoded) {
+                while (parser.nextToken() != null) {
+                    // read to the end for the fingerprint, a broken json fails here
+                }
+            }
+            fingerprint = parser.fingerprint();
+        }
+
+        Schema schema = inferredSchemas.get(fingerprint);
+        if (schema == null) {
+            try (JsonParser parser = createParser(json)) {
+                schema = inferredSchemas.put(fingerprint, JsonSchemaInference.infer(parser));
+            }
+            log.info("New shape of the json field {}, its schema is {}", fieldName, schema);
+        }
+        previousSchema = schema;
+        if (decoded && schema == guessed) {
+            return new Decoded(schema, value);
+        }
+        return new Decoded(schema, decode(json, schema));
+    }
+
+    private Object decode(Object json, Schema jsonSchema) throws IOException {
+
+        try (JsonParser parser = createParser(json)) {
+            return decode(parser, jsonSchema);
+        }
+    }
+
+    // the parser is on the first token of the document, and is left at its end
+    private Object decode(JsonParser parser, Schema jsonSchema) throws IOException {
+
+        Object value = decoders.computeIfAbsent(jsonSchema, JsonDecoders::compile).decode(parser);
+        if (parser.nextToken() != null) {
+            throw new JsonParseException(parser, "Unexpected content after the json document");
+        }
+        return value;
+    }
+
+    // a parser on the first token of the document, a string or bytes
+    private JsonParser createParser(Object json) throws IOException {
+        return firstToken(JsonInput.createParser(factory, json));
+    }
+
+    private static <P extends JsonParser> P firstToken(P parser) throws IOException {
+
+        if (parser.nextToken() == null) {
+            parser.close();
+            throw new JsonParseException(parser, "Empty json document");
+        }
+        return parser;
+    }
+
+    // a decoded json field and its schema
+    private static final class Decoded {
+
+        private final Schema schema;
+        private final Object value;
+
+        private Decoded(Schema schema, Object value) {
+            this.schema = schema;
+            this.value = value;
+        }
+    }
+
+    private UpdatePlan compileUpdatePlan(Schema schema) {
+
+        Field jsonField = schema.field(fieldName);
+        if (jsonField == null || !JsonInput.accepts(jsonField.schema())) {
+            throw new DataException("The json field " + fieldName + " must be a string or bytes field of the record");
+        }
+
+        return new UpdatePlan(schema, jsonField.index(), schemaCacheSize);
+    }
+
+    // what we need to copy a struct of a given schema : source field i is written to updated field i, decoded if it is the json field
+    private static final class UpdatePlan {
+
+        private final Schema schema;
+        private final Field[] sourceFields;
+        private final int jsonFieldIndex;
+
+        // the updated schema depends on the json schema too
+        private final SchemaCache<UpdatedSchema> updatedSchemas;
+
+        private UpdatePlan(Schema schema, int jsonFieldIndex, int cacheSize) {
+            this.schema = schema;
+            this.sourceFields = schema.fields().toArray(new Field[0]);
+            this.jsonFieldIndex = jsonFieldIndex;
+            this.updatedSchemas = new SchemaCache<>(cacheSize);
+        }
+
+        private UpdatedSchema compileUpdatedSchema(Schema jsonSchema) {
+
+            // copy the schema of the record ( name, version, comments, etc ) with the decoded field in place of the json one
+            SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+            for (Field field : sourceFields) {
+                builder.field(field.name(), field.index() == jsonFieldIndex ? jsonSchema : field.schema());
+            }
+            return new UpdatedSchema(SchemaInterner.intern(builder.build()));
+        }
+    }
+
+    private static final class UpdatedSchema {
+
+        private final Schema schema;
+        private final Field[] fields;
+
+        private UpdatedSchema(Schema schema) {
+            this.schema = schema;
+            this.fields = schema.fields().toArray(new Field[0]);
+        }
+    }
+
+    // null when the schema is declared
+    public InferredSchemaCache inferredSchemas() {
+        return inferredSchemas;
+    }
+
+    @Override
+    public void close() {
+        metrics.release(decoders, updatePlans, inferredSchemas);
+        metrics = TransformMetrics.DISABLED;
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    public static class Key<R extends ConnectRecord<R>> extends JsonToStruct<R> {
+
+        @Override
+        protected Schema operatingSchema(R kafkaRecord) {
+            return kafkaRecord.keySchema();
+        }
+
+        @Override
+        protected Object operatingValue(R kafkaRecord) {
+            return kafkaRecord.key();
+        }
+
+        @Override
+        protected R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue) {
+            return kafkaRecord.newRecord(kafkaRecord.topic(), kafkaRecord.kafkaPartition(), updatedSchema, updatedValue, kafkaRecord.valueSchema(), kafkaRecord.value(), kafkaRecord.timestamp());
+        }
+
+    }
+
+    public static class Value<R extends ConnectRecord<R>> extends JsonToStruct<R> {
+
+        @Override
+        protected Schema operatingSchema(R kafkaRecord) {
+            return kafkaRecord.valueSchema();
+        }
+
+        @Override
+        protected Object operatingValue(R kafkaRecord) {
+            return kafkaRecord.value();
+        }
+
+        @Override
+        protected R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue) {
+            return kafkaRecord.newRecord(kafkaRecord.topic(), kafkaRecord.kafkaPartition(), kafkaRecord.keySchema(), kafkaRecord.key(), updatedSchema, updatedValue, kafkaRecord.timestamp());
+        }
+    }
+}
@@ -1,32 +1,96 @@
 package org.example.json.transformers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.Requirements;
 import org.apache.kafka.connect.transforms.util.SchemaUtil;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.json.transformers.aggregators.PriceAggregate;
+import org.example.json.transformers.aggregators.PurchaseItemAccumulator;
+import org.example.json.transformers.aggregators.PurchaseSummary;
+import org.example.json.transformers.catalog.CatalogIndex;
+import org.example.json.transformers.catalog.ItemCatalog;
+import org.example.json.transformers.converters.InputFormat;
+import org.example.json.transformers.converters.ParallelItemDecoder;
 import org.example.json.transformers.converters.PurchaseItemConverter;
+import org.example.json.transformers.converters.StringCache;
 import org.example.json.transformers.schemas.PurchaseItemSchema;
-
+import org.example.transformers.common.Diagnostics;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 @Slf4j
 public abstract class MergedPurchaseItemToArray<R extends ConnectRecord<R>> implements Transformation<R> {
 
     public static final String JSON_FIELD_CONFIG = "field";
-    public static final ConfigDef CONFIG_DEF = new ConfigDef()
-            .define(JSON_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Json field name to format and merge");
+    public static final String FORMAT_CONFIG = "format";
+    public static final String LAYOUT_CONFIG = "layout";
+    public static final String SCHEMA_CACHE_SIZE_CONFIG = "schema.cache.size";
+    public static final String NAME_CACHE_SIZE_CONFIG = "name.cache.size";
+    public static final String CATALOG_PATH_CONFIG = "catalog.path";
+    public static final String CATALOG_FIELDS_CONFIG = "catalog.fields";
+    public static final String CATALOG_RELOAD_MS_CONFIG = "catalog.reload.ms";
+    public static final String PARALLEL_THRESHOLD_CONFIG = "parallel.threshold.bytes";
+    public static final String AGGREGATES_CONFIG = "aggregates";
+    public static final String SUMMARY_CONFIG = "summary";
+    public static final String TOP_ITEMS_CONFIG = "top.items";
+    public static final ConfigDef CONFIG_DEF = Diagnostics.define(TransformMetrics.define(new ConfigDef()
+            .define(JSON_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Json field name to format and merge")
+            .define(AGGREGATES_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.LambdaValidator.with(
+                            (name, value) -> {
+                                for (Object aggregate : (List<?>) value) {
+                                    try {
+                                        PriceAggregate.forName((String) aggregate);
+                                    } catch (IllegalArgumentException e) {
+                                        throw new ConfigException(name, value, "Unknown aggregate " + aggregate);
+                                    }
+                                }
+                            }, () -> "[sum, count, min, max, avg]"), ConfigDef.Importance.MEDIUM,
+                    "Aggregates of the merged items prices added to each merged item as price_<aggregate> fields (sum, count, min, max, avg)")
+            .define(SUMMARY_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.LambdaValidator.with(
+                            (name, value) -> {
+                                for (Object summary : (List<?>) value) {
+                                    try {
+                                        PurchaseSummary.forName((String) summary);
+                                    } catch (IllegalArgumentException e) {
+                                        throw new ConfigException(name, value, "Unknown summary " + summary);
+                                    }
+                                }
+                            }, () -> "[total_spend, item_count, distinct_items]"), ConfigDef.Importance.MEDIUM,
+                    "Totals of the purchase added to the record as fields of the same name (total_spend, item_count, distinct_items)")
+            .define(TOP_ITEMS_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM,
+                    "Number of merged items with the highest price added to the record as a top_items array, 0 to not add it")
+            .define(FORMAT_CONFIG, ConfigDef.Type.STRING, "json", InputFormat.VALIDATOR, ConfigDef.Importance.MEDIUM, "Encoding of the json field : json, or smile / cbor ( binary json, in a bytes field )")
+            .define(LAYOUT_CONFIG, ConfigDef.Type.STRING, "rows", ConfigDef.CaseInsensitiveValidString.in("rows", "columns"), ConfigDef.Importance.MEDIUM,
+                    "Layout of the items : rows ( an array of item structs ) or columns ( a struct of arrays : item_ids, names, prices )")
+            .define(SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of distinct schemas for which the updated schema is kept")
+            .define(CATALOG_PATH_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    "Csv file of the item catalog ( item_id first, with a header line ) whose columns are added to each item, no enrichment when not set")
+            .define(CATALOG_FIELDS_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.LOW, "Catalog columns added to the items, all of them when empty")
+            .define(CATALOG_RELOAD_MS_CONFIG, ConfigDef.Type.LONG, 10000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "How often the catalog file is checked for changes, and reloaded, 0 to never reload it")
+            .define(PARALLEL_THRESHOLD_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Size of the json ( bytes, or characters for a string ) from which the items are decoded on several threads, 0 ( the default ) to always decode them on the task thread")
+            .define(NAME_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 1024, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Number of item names kept to reuse the same String instead of decoding a new one per item, 0 to disable")));
 
     protected abstract Schema operatingSchema(R kafkaRecord);
 
@@ -35,20 +99,94 @@ public abstract class MergedPurchaseItemToArray<R extends ConnectRecord<R>> impl
     protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
 
     private String fieldName;
+    private InputFormat format;
+    private boolean columns;
+
+    // item names decoded once, null when disabled
+    private StringCache names;
+    private int parallelThreshold;
+
+    // columns added to the items, null without a catalog
+    private ItemCatalog catalog;
+    private Field[] catalogFields;
+
+    // per schema : the updated schema with the array of items
+    private SchemaCache<Schema> updatedSchemas;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+    private Diagnostics diagnostics;
+    private PriceAggregate[] aggregates;
+    private Schema mergedItemSchema;
+    private Schema mergedItemsSchema;
+
+    // the fields added to the record next to the items
+    private PurchaseSummary[] summary;
+    private int topItems;
+    private Schema topItemsSchema;
 
     @Override
     public void configure(Map<String, ?> map) {
 
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
         fieldName = config.getString(JSON_FIELD_CONFIG);
+        format = InputFormat.forName(config.getString(FORMAT_CONFIG));
+        columns = config.getString(LAYOUT_CONFIG).equalsIgnoreCase("columns");
+        String catalogPath = config.getString(CATALOG_PATH_CONFIG);
+        if (catalogPath != null && columns) {
+            throw new ConfigException(CATALOG_PATH_CONFIG, catalogPath, "The catalog enrichment needs the rows layout");
+        }
+        int nameCacheSize = config.getInt(NAME_CACHE_SIZE_CONFIG);
+        names = nameCacheSize == 0 ? null : new StringCache(nameCacheSize);
+        updatedSchemas = new SchemaCache<>(config.getInt(SCHEMA_CACHE_SIZE_CONFIG));
+        diagnostics = Diagnostics.create(config, log);
+        aggregates = config.getList(AGGREGATES_CONFIG).stream().map(PriceAggregate::forName).distinct().toArray(PriceAggregate[]::new);
+        summary = config.getList(SUMMARY_CONFIG).stream().map(PurchaseSummary::forName).distinct().toArray(PurchaseSummary[]::new);
+        topItems = config.getInt(TOP_ITEMS_CONFIG);
+
+        // the configuration is checked, the metrics and the catalog are given back if they cannot be set up
+        metrics = TransformMetrics.acquire(config, getClass());
+        try {
+            metrics.watch(TransformMetrics.SCHEMA_CACHE, updatedSchemas);
+            metrics.watch("StringCache", names);
+            catalog = ItemCatalog.open(catalogPath, config.getList(CATALOG_FIELDS_CONFIG), config.getLong(CATALOG_RELOAD_MS_CONFIG), CATALOG_PATH_CONFIG);
+            mergedItemSchema = PurchaseItemSchema.itemSchema(aggregates, catalog == null ? Collections.emptyList() : catalog.fieldNames());
+            catalogFields = catalog == null ? null : catalog.fields(mergedItemSchema);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        topItemsSchema = SchemaBuilder.array(mergedItemSchema).optional().build();
+        if (columns) {
+            mergedItemsSchema = PurchaseItemSchema.mergedColumnsSchema(aggregates);
+        } else {
+            mergedItemsSchema = mergedItemSchema == PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT ? PurchaseItemSchema.PURCHASE_ITEM_ARRAY_SCHEMA_FLAT : SchemaBuilder.array(mergedItemSchema).build();
+        }
+        parallelThreshold = config.getInt(PARALLEL_THRESHOLD_CONFIG);
+        if (parallelThreshold > 0) {
+            // last, nothing can fail the configuration once the pool is acquired
+            ParallelItemDecoder.acquire();
+        }
     }
 
     @Override
     public R apply(R record) {
 
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
         try {
-            log.info("Playing MergedPurchaseItemToArray transformation ...");
             if(record.value() == null) {
+                metrics.passThrough();
                 return record;
             }
             if(operatingSchema(record) == null) {
@@ -56,36 +194,31 @@ public abstract class MergedPurchaseItemToArray<R extends ConnectRecord<R>> impl
             }else {
                 return formatWithSchema(record);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.error("Error during parsing on the MergedPurchaseItemToArray transformer", e);
+            metrics.parseFailure();
             return record;
         }
     }
 
     private static final String PURPOSE = "format and merge json object";
 
-    private R formatWithoutSchema(R record) throws JsonProcessingException {
+    private R formatWithoutSchema(R record) throws IOException {
 
         Map<String,Object> recordValues = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
         Map<String, Object> updatedRecordValues = new HashMap<>(recordValues);
-        updatedRecordValues.put(this.fieldName, convertToStructArray((String) recordValues.get(this.fieldName)));
+        PurchaseItemAccumulator accumulator = merge(recordValues.get(this.fieldName));
+        Object items = mergedItems(accumulator);
+        updatedRecordValues.put(this.fieldName, items);
+        putSummary(updatedRecordValues::put, accumulator, items);
+        diagnose(recordValues.get(this.fieldName), items);
         return newRecord(record, null, updatedRecordValues);
     }
 
-    private R formatWithSchema(R record) throws JsonProcessingException {
+    private R formatWithSchema(R record) throws IOException {
 
-        // schema
-        Schema schema = operatingSchema(record);
-        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
-        for (Field field : schema.fields()) {
-
-            if (field.name().equals(this.fieldName)) {
-                builder.field(field.name(), PurchaseItemSchema.PURCHASE_ITEM_ARRAY_SCHEMA_FLAT);
-            } else {
-                builder.field(field.name(), field.schema());
-            }
-        }
-        Schema updatedSchema = builder.build();
+        // schema, only built the first time we see this schema
+        Schema updatedSchema = updatedSchemas.computeIfAbsent(operatingSchema(record), this::compileUpdatedSchema);
 
         // values
         Struct recordValues = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
@@ -97,36 +230,138 @@ public abstract class MergedPurchaseItemToArray<R extends ConnectRecord<R>> impl
             }
             recordUpdatedValues.put(field.name(), recordValues.get(field));
         }
-        List<Struct> convertedItems = convertToStructArray((String) recordValues.get(this.fieldName));
-        List<Struct> convertedAndMergedItems = mergeStructArray(convertedItems);
-        recordUpdatedValues.put(this.fieldName, convertedAndMergedItems);
+        PurchaseItemAccumulator accumulator = merge(recordValues.get(this.fieldName));
+        Object items = mergedItems(accumulator);
+        recordUpdatedValues.put(this.fieldName, items);
+        putSummary(recordUpdatedValues::put, accumulator, items);
+        diagnose(recordValues.get(this.fieldName), items);
 
         return newRecord(record, updatedSchema, recordUpdatedValues);
     }
 
-    private List<Struct> mergeStructArray(List<Struct> convertedItems) {
+    // the json of a sampled record and the merged items it became
+    private void diagnose(Object json, Object items) {
+        if (diagnostics.sample()) {
+            diagnostics.log("Merged the items of {} : {} into {}", fieldName, json, items);
+        }
+    }
+
+    // null when the json field is null
+    private PurchaseItemAccumulator merge(Object value) throws IOException {
+
+        if (value == null) {
+            return null;
+        }
+        // the parser feeds the accumulator directly : only the merged items are built, in the order they are first seen
+        PurchaseItemAccumulator accumulator = new PurchaseItemAccumulator(EXPECTED_DISTINCT_ITEMS);
+        PurchaseItemConverter.parse(value, format, names, parallelThreshold, accumulator::add);
+        return accumulator;
+    }
+
+    private Object mergedItems(PurchaseItemAccumulator accumulator) {
+
+        if (accumulator == null) {
+            return null;
+        }
+        if (columns) {
+            return accumulator.toColumns(mergedItemsSchema, aggregates);
+        }
+        List<Struct> items = accumulator.toStructs(mergedItemSchema, aggregates);
+        if (catalog != null) {
+            // all the items from the same catalog snapshot
+            CatalogIndex index = catalog.acquire();
+            try {
+                for (Struct item : items) {
+                    ItemCatalog.enrich(index, item, item.getInt32(ITEM_ID_FIELD), catalogFields);
+                }
+            } finally {
+                index.release();
+            }
+        }
+        return items;
+    }
+
+    // the summary fields and the top items, from the accumulator of the merge : the items are not read again
+    private void putSummary(BiConsumer<String, Object> fields, PurchaseItemAccumulator accumulator, Object items) {
+
+        for (PurchaseSummary total : summary) {
+            fields.accept(total.fieldName(), accumulator == null ? null : total.value(accumulator));
+        }
+        if (topItems > 0) {
+            fields.accept(TOP_ITEMS_FIELD, accumulator == null ? null : topItems(accumulator, items));
+        }
+    }
 
-        return convertedItems.stream().collect(Collectors.groupingBy(item -> item.get("item_id")))
-                .values()
-                .stream()
-                .map(items -> {
+    private List<Struct> topItems(PurchaseItemAccumulator accumulator, Object items) {
 
-                    Struct mergedItem = new Struct(PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT);
-                    int mergedPrice = items.stream().mapToInt(item -> (int) item.get("price")).sum();
-                    mergedItem.put("item_id", items.get(0).get("item_id"));
-                    mergedItem.put("name", items.get(0).get("name"));
-                    mergedItem.put("price", mergedPrice);
-                    return mergedItem;
-                }).collect(Collectors.toList());
+        int[] top = accumulator.top(topItems);
+        if (columns) {
+            return accumulator.toStructs(mergedItemSchema, aggregates, top);
+        }
+        // the merged items are in the order of their positions : the top items are the same structs
+        List<?> merged = (List<?>) items;
+        List<Struct> topStructs = new ArrayList<>(top.length);
+        for (int position : top) {
+            topStructs.add((Struct) merged.get(position));
+        }
+        return topStructs;
     }
 
-    private List<Struct> convertToStructArray(String value) throws JsonProcessingException {
-        return PurchaseItemConverter.convertToStructArray(value);
+    private static final String ITEM_ID_FIELD = "item_id";
+    private static final String TOP_ITEMS_FIELD = "top_items";
+
+    // the accumulator grows past this
+    private static final int EXPECTED_DISTINCT_ITEMS = 16;
+
+    private Schema compileUpdatedSchema(Schema schema) {
+
+        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+        for (Field field : schema.fields()) {
+
+            if (field.name().equals(this.fieldName)) {
+                builder.field(field.name(), mergedItemsSchema);
+            } else {
+                builder.field(field.name(), field.schema());
+            }
+        }
+        for (PurchaseSummary total : summary) {
+            addField(builder, schema, total.fieldName(), total.schema());
+        }
+        if (topItems > 0) {
+            addField(builder, schema, TOP_ITEMS_FIELD, topItemsSchema);
+        }
+        return SchemaInterner.intern(builder.build());
+    }
+
+    private static void addField(SchemaBuilder builder, Schema schema, String name, Schema fieldSchema) {
+
+        if (schema.field(name) != null) {
+            throw new DataException("The record already has a field " + name);
+        }
+        builder.field(name, fieldSchema);
+    }
+
+    // null when disabled
+    public StringCache nameCache() {
+        return names;
     }
 
+    // null without a catalog
+    public ItemCatalog catalog() {
+        return catalog;
+    }
 
     @Override
     public void close() {
+        if (catalog != null) {
+            catalog.close();
+        }
+        if (parallelThreshold > 0) {
+            ParallelItemDecoder.release();
+            parallelThreshold = 0;
+        }
+        metrics.release(updatedSchemas, names);
+        metrics = TransformMetrics.DISABLED;
     }
 
     @Override
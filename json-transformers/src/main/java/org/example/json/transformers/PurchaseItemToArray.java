@@ -1,8 +1,8 @@
 package org.example.json.transformers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
@@ -12,11 +12,24 @@ import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.Requirements;
 import org.apache.kafka.connect.transforms.util.SchemaUtil;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.json.transformers.aggregators.PriceAggregate;
+import org.example.json.transformers.catalog.CatalogIndex;
+import org.example.json.transformers.catalog.ItemCatalog;
+import org.example.json.transformers.converters.InputFormat;
+import org.example.json.transformers.converters.ParallelItemDecoder;
 import org.example.json.transformers.converters.PurchaseItemConverter;
+import org.example.json.transformers.converters.StringCache;
 import org.example.json.transformers.schemas.PurchaseItemSchema;
-
-import java.util.HashMap;
+import org.example.transformers.common.Diagnostics;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -24,8 +37,29 @@ import java.util.Objects;
 public abstract class PurchaseItemToArray<R extends ConnectRecord<R>> implements Transformation<R> {
 
     public static final String JSON_FIELD_CONFIG = "field";
-    public static final ConfigDef CONFIG_DEF = new ConfigDef()
-            .define(JSON_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Json field name to format");
+    public static final String FORMAT_CONFIG = "format";
+    public static final String LAYOUT_CONFIG = "layout";
+    public static final String SCHEMA_CACHE_SIZE_CONFIG = "schema.cache.size";
+    public static final String NAME_CACHE_SIZE_CONFIG = "name.cache.size";
+    public static final String CATALOG_PATH_CONFIG = "catalog.path";
+    public static final String CATALOG_FIELDS_CONFIG = "catalog.fields";
+    public static final String CATALOG_RELOAD_MS_CONFIG = "catalog.reload.ms";
+    public static final String PARALLEL_THRESHOLD_CONFIG = "parallel.threshold.bytes";
+    public static final ConfigDef CONFIG_DEF = Diagnostics.define(TransformMetrics.define(new ConfigDef()
+            .define(JSON_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Json field name to format")
+            .define(FORMAT_CONFIG, ConfigDef.Type.STRING, "json", InputFormat.VALIDATOR, ConfigDef.Importance.MEDIUM, "Encoding of the json field : json, or smile / cbor ( binary json, in a bytes field )")
+            .define(LAYOUT_CONFIG, ConfigDef.Type.STRING, "rows", ConfigDef.CaseInsensitiveValidString.in("rows", "columns"), ConfigDef.Importance.MEDIUM,
+                    "Layout of the items : rows ( an array of item structs ) or columns ( a struct of arrays : item_ids, names, prices )")
+            .define(SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of distinct schemas for which the updated schema is kept")
+            .define(CATALOG_PATH_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM,
+                    "Csv file of the item catalog ( item_id first, with a header line ) whose columns are added to each item, no enrichment when not set")
+            .define(CATALOG_FIELDS_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.LOW, "Catalog columns added to the items, all of them when empty")
+            .define(CATALOG_RELOAD_MS_CONFIG, ConfigDef.Type.LONG, 10000L, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "How often the catalog file is checked for changes, and reloaded, 0 to never reload it")
+            .define(PARALLEL_THRESHOLD_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Size of the json ( bytes, or characters for a string ) from which the items are decoded on several threads, 0 ( the default ) to always decode them on the task thread")
+            .define(NAME_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 1024, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW,
+                    "Number of item names kept to reuse the same String instead of decoding a new one per item, 0 to disable")));
 
     protected abstract Schema operatingSchema(R kafkaRecord);
 
@@ -34,20 +68,80 @@ public abstract class PurchaseItemToArray<R extends ConnectRecord<R>> implements
     protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
 
     private String fieldName;
+    private InputFormat format;
+    private boolean columns;
+
+    // item names decoded once, null when disabled
+    private StringCache names;
+    private int parallelThreshold;
+
+    // columns added to the items, null without a catalog
+    private ItemCatalog catalog;
+    private Field[] catalogFields;
+    private Schema itemSchema;
+    private Schema itemArraySchema;
+
+    // per schema : the updated schema with the array of items
+    private SchemaCache<Schema> updatedSchemas;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+    private Diagnostics diagnostics;
 
     @Override
     public void configure(Map<String, ?> map) {
 
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
         fieldName = config.getString(JSON_FIELD_CONFIG);
+        format = InputFormat.forName(config.getString(FORMAT_CONFIG));
+        columns = config.getString(LAYOUT_CONFIG).equalsIgnoreCase("columns");
+        String catalogPath = config.getString(CATALOG_PATH_CONFIG);
+        if (catalogPath != null && columns) {
+            throw new ConfigException(CATALOG_PATH_CONFIG, catalogPath, "The catalog enrichment needs the rows layout");
+        }
+        int nameCacheSize = config.getInt(NAME_CACHE_SIZE_CONFIG);
+        names = nameCacheSize == 0 ? null : new StringCache(nameCacheSize);
+        updatedSchemas = new SchemaCache<>(config.getInt(SCHEMA_CACHE_SIZE_CONFIG));
+        diagnostics = Diagnostics.create(config, log);
+
+        // the configuration is checked, the metrics and the catalog are given back if they cannot be set up
+        metrics = TransformMetrics.acquire(config, getClass());
+        try {
+            metrics.watch(TransformMetrics.SCHEMA_CACHE, updatedSchemas);
+            metrics.watch("StringCache", names);
+            catalog = ItemCatalog.open(catalogPath, config.getList(CATALOG_FIELDS_CONFIG), config.getLong(CATALOG_RELOAD_MS_CONFIG), CATALOG_PATH_CONFIG);
+            itemSchema = catalog == null ? PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT : PurchaseItemSchema.itemSchema(new PriceAggregate[0], catalog.fieldNames());
+            itemArraySchema = catalog == null ? PurchaseItemSchema.PURCHASE_ITEM_ARRAY_SCHEMA_FLAT : SchemaBuilder.array(itemSchema).build();
+            catalogFields = catalog == null ? null : catalog.fields(itemSchema);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        parallelThreshold = config.getInt(PARALLEL_THRESHOLD_CONFIG);
+        if (parallelThreshold > 0) {
+            // last, nothing can fail the configuration once the pool is acquired
+            ParallelItemDecoder.acquire();
+        }
     }
 
     @Override
     public R apply(R record) {
 
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
         try {
-            log.info("Playing PurchaseToArray transformation ...");
             if(record.value() == null) {
+                metrics.passThrough();
                 return record;
             }
             if(operatingSchema(record) == null) {
@@ -55,36 +149,29 @@ public abstract class PurchaseItemToArray<R extends ConnectRecord<R>> implements
             }else {
                 return formatWithSchema(record);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.error("Error during parsing on the PurchaseToArray transformer", e);
+            metrics.parseFailure();
             return record;
         }
     }
 
     private static final String PURPOSE = "format json object";
 
-    private R formatWithoutSchema(R record) throws JsonProcessingException {
+    private R formatWithoutSchema(R record) throws IOException {
 
         Map<String,Object> recordValues = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
         Map<String, Object> updatedRecordValues = new HashMap<>(recordValues);
-        updatedRecordValues.put(this.fieldName, convertToStructArray((String) recordValues.get(this.fieldName)));
+        Object items = convertToStructArray(recordValues.get(this.fieldName));
+        updatedRecordValues.put(this.fieldName, items);
+        diagnose(recordValues.get(this.fieldName), items);
         return newRecord(record, null, updatedRecordValues);
     }
 
-    private R formatWithSchema(R record) throws JsonProcessingException {
+    private R formatWithSchema(R record) throws IOException {
 
-        // schema
-        Schema schema = operatingSchema(record);
-        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
-        for (Field field : schema.fields()) {
-
-            if (field.name().equals(this.fieldName)) {
-                builder.field(field.name(), PurchaseItemSchema.PURCHASE_ITEM_ARRAY_SCHEMA_FLAT);
-            } else {
-                builder.field(field.name(), field.schema());
-            }
-        }
-        Schema updatedSchema = builder.build();
+        // schema, only built the first time we see this schema
+        Schema updatedSchema = updatedSchemas.computeIfAbsent(operatingSchema(record), this::compileUpdatedSchema);
 
         // values
         Struct recordValues = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
@@ -96,18 +183,93 @@ public abstract class PurchaseItemToArray<R extends ConnectRecord<R>> implements
             }
             recordUpdatedValues.put(field.name(), recordValues.get(field));
         }
-        recordUpdatedValues.put(this.fieldName, convertToStructArray((String) recordValues.get(this.fieldName)));
+        Object items = convertToStructArray(recordValues.get(this.fieldName));
+        recordUpdatedValues.put(this.fieldName, items);
+        diagnose(recordValues.get(this.fieldName), items);
 
         return newRecord(record, updatedSchema, recordUpdatedValues);
     }
 
-    private List<Struct> convertToStructArray(String value) throws JsonProcessingException {
-        return PurchaseItemConverter.convertToStructArray(value);
+    // the json of a sampled record and the items it became
+    private void diagnose(Object json, Object items) {
+        if (diagnostics.sample()) {
+            diagnostics.log("Mapped the items of {} : {} into {}", fieldName, json, items);
+        }
+    }
+
+    private Object convertToStructArray(Object value) throws IOException {
+
+        if (columns) {
+            return PurchaseItemConverter.convertToColumns(value, format, names, parallelThreshold);
+        }
+        if (catalog == null) {
+            return PurchaseItemConverter.convertToStructArray(value, format, names, parallelThreshold);
+        }
+        return convertAndEnrich(value);
+    }
+
+    // the items with the columns of the catalog, all of them from the same catalog snapshot
+    private List<Struct> convertAndEnrich(Object value) throws IOException {
+
+        if (value == null) {
+            return null;
+        }
+        CatalogIndex index = catalog.acquire();
+        try {
+            List<Struct> items = new ArrayList<>();
+            PurchaseItemConverter.parse(value, format, names, parallelThreshold, (itemId, name, price) -> {
+                Struct item = new Struct(itemSchema)
+                        .put(ITEM_ID_FIELD, itemId)
+                        .put(NAME_FIELD, name)
+                        .put(PRICE_FIELD, price);
+                ItemCatalog.enrich(index, item, itemId, catalogFields);
+                items.add(item);
+            });
+            return items;
+        } finally {
+            index.release();
+        }
     }
 
+    private static final String ITEM_ID_FIELD = "item_id";
+    private static final String NAME_FIELD = "name";
+    private static final String PRICE_FIELD = "price";
+
+    private Schema compileUpdatedSchema(Schema schema) {
+
+        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+        for (Field field : schema.fields()) {
+
+            if (field.name().equals(this.fieldName)) {
+                builder.field(field.name(), columns ? PurchaseItemSchema.PURCHASE_ITEM_COLUMNS_SCHEMA : itemArraySchema);
+            } else {
+                builder.field(field.name(), field.schema());
+            }
+        }
+        return SchemaInterner.intern(builder.build());
+    }
+
+    // null when disabled
+    public StringCache nameCache() {
+        return names;
+    }
+
+    // null without a catalog
+    public ItemCatalog catalog() {
+        return catalog;
+    }
 
     @Override
     public void close() {
+        if (catalog != null) {
+            catalog.close();
+        }
+        if (parallelThreshold > 0) {
+            ParallelItemDecoder.release();
+            parallelThreshold = 0;
+        }
+        metrics.release(updatedSchemas, names);
+        metrics = TransformMetrics.DISABLED;
     }
 
     @Override
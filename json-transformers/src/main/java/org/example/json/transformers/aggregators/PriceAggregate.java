@@ -0,0 +1,42 @@
+package org.example.json.transformers.aggregators;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.Locale;
+
+public enum PriceAggregate {
+
+    /*
+        The aggregates of the merged items prices that can be added to each merged item, as price_<aggregate> fields.
+        The price field itself is always the sum.
+     */
+
+    SUM(Schema.INT32_SCHEMA),
+    COUNT(Schema.INT32_SCHEMA),
+    MIN(Schema.INT32_SCHEMA),
+    MAX(Schema.INT32_SCHEMA),
+    AVG(Schema.FLOAT64_SCHEMA);
+
+    private final Schema schema;
+
+    PriceAggregate(Schema schema) {
+        this.schema = schema;
+    }
+
+    public String fieldName() {
+        return "price_" + name().toLowerCase(Locale.ROOT);
+    }
+
+    // the name of the array of this aggregate in the columns layout : price_counts, price_mins, ...
+    public String columnName() {
+        return fieldName() + "s";
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public static PriceAggregate forName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,288 @@
+package org.example.json.transformers.aggregators;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.example.json.transformers.converters.DoubleArrayView;
+import org.example.json.transformers.converters.IntArrayView;
+import org.example.json.transformers.schemas.PurchaseItemSchema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class PurchaseItemAccumulator {
+
+    /*
+        Merges purchased items by item_id : the first name seen, and the running sum, count, min and max of the price.
+        item_id -> position is an open addressing table of primitive ints ( linear probing ), the merged values are kept
+        in parallel arrays by position, which is the order in which the items were first seen.
+        Nothing is boxed and nothing is allocated per item, except when the arrays grow.
+        The merged items are given as structs ( toStructs ), or as parallel arrays over the buffers ( toColumns ).
+        The totals of the purchase ( see PurchaseSummary ) are kept on the way, and the top items by price are selected from
+        the merged prices with a small heap of positions.
+     */
+
+    private static final int EMPTY = -1;
+
+    // open addressing table : the position of each item_id in the arrays below, or EMPTY
+    private int[] table;
+    private int mask;
+
+    private int size;
+    private int[] itemIds;
+    private String[] names;
+    private int[] sums;
+    private int[] counts;
+    private int[] mins;
+    private int[] maxs;
+
+    private long totalSpend;
+    private int itemCount;
+
+    public PurchaseItemAccumulator(int expectedItems) {
+
+        int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, expectedItems) - 1) << 1);
+        itemIds = new int[capacity];
+        names = new String[capacity];
+        sums = new int[capacity];
+        counts = new int[capacity];
+        mins = new int[capacity];
+        maxs = new int[capacity];
+        table = new int[capacity * 2];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+    }
+
+    public void add(int itemId, String name, int price) {
+
+        totalSpend += price;
+        itemCount++;
+        int slot = slot(itemId);
+        int position = table[slot];
+        if (position == EMPTY) {
+            if (size == itemIds.length) {
+                grow();
+                slot = slot(itemId);
+            }
+            position = size++;
+            table[slot] = position;
+            itemIds[position] = itemId;
+            names[position] = name;
+            sums[position] = price;
+            counts[position] = 1;
+            mins[position] = price;
+            maxs[position] = price;
+            return;
+        }
+        sums[position] += price;
+        counts[position]++;
+        mins[position] = Math.min(mins[position], price);
+        maxs[position] = Math.max(maxs[position], price);
+    }
+
+    // the slot holding this item_id, or the empty slot where it goes
+    private int slot(int itemId) {
+
+        int slot = mix(itemId) & mask;
+        while (table[slot] != EMPTY && itemIds[table[slot]] != itemId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+
+        int capacity = itemIds.length * 2;
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxs = Arrays.copyOf(maxs, capacity);
+        table = new int[capacity * 2];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+        for (int position = 0; position < size; position++) {
+            table[slot(itemIds[position])] = position;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the sum of the prices of all the items, before the merge
+    public long totalSpend() {
+        return totalSpend;
+    }
+
+    // the number of items, before the merge
+    public int itemCount() {
+        return itemCount;
+    }
+
+    /**
+     * The positions of the n merged items with the highest price ( the sum ), highest first, the item seen first winning a tie.
+     */
+    public int[] top(int n) {
+
+        int count = Math.min(n, size);
+        if (count <= 0) {
+            return new int[0];
+        }
+        // min heap of the best positions so far : its root is the first one to leave
+        int[] heap = new int[count];
+        for (int position = 0; position < size; position++) {
+            if (position < count) {
+                heap[position] = position;
+                siftUp(heap, position);
+            } else if (before(position, heap[0])) {
+                heap[0] = position;
+                siftDown(heap, count);
+            }
+        }
+        // emptying the heap gives the worst first
+        int[] top = new int[count];
+        for (int remaining = count; remaining > 0; remaining--) {
+            top[remaining - 1] = heap[0];
+            heap[0] = heap[remaining - 1];
+            siftDown(heap, remaining - 1);
+        }
+        return top;
+    }
+
+    // true when the item at left ranks before the one at right
+    private boolean before(int left, int right) {
+        return sums[left] != sums[right] ? sums[left] > sums[right] : left < right;
+    }
+
+    private void siftUp(int[] heap, int index) {
+
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!before(heap[parent], heap[index])) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int length) {
+
+        int index = 0;
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < length && before(heap[worst], heap[left])) {
+                worst = left;
+            }
+            if (right < length && before(heap[worst], heap[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int swapped = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swapped;
+    }
+
+    // the merged items in the order they were first seen, the schema being the flat item schema plus the aggregates fields
+    public List<Struct> toStructs(Schema itemSchema, PriceAggregate[] aggregates) {
+
+        int[] positions = new int[size];
+        for (int position = 0; position < size; position++) {
+            positions[position] = position;
+        }
+        return toStructs(itemSchema, aggregates, positions);
+    }
+
+    // the merged items at these positions ( see top ), in the order of the positions
+    public List<Struct> toStructs(Schema itemSchema, PriceAggregate[] aggregates, int[] positions) {
+
+        Field itemIdField = itemSchema.field("item_id");
+        Field nameField = itemSchema.field("name");
+        Field priceField = itemSchema.field("price");
+        Field[] aggregateFields = new Field[aggregates.length];
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregateFields[i] = itemSchema.field(aggregates[i].fieldName());
+        }
+
+        List<Struct> items = new ArrayList<>(positions.length);
+        for (int position : positions) {
+
+            Struct item = new Struct(itemSchema)
+                    .put(itemIdField, itemIds[position])
+                    .put(nameField, names[position])
+                    .put(priceField, sums[position]);
+            for (int i = 0; i < aggregates.length; i++) {
+                item.put(aggregateFields[i], aggregate(aggregates[i], position));
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    // the merged items as parallel arrays over the primitive buffers, the schema being the columns schema plus the aggregates arrays
+    public Struct toColumns(Schema columnsSchema, PriceAggregate[] aggregates) {
+
+        Struct columns = new Struct(columnsSchema)
+                .put(PurchaseItemSchema.ITEM_IDS_FIELD.name(), new IntArrayView(itemIds, size))
+                .put(PurchaseItemSchema.NAMES_FIELD.name(), Arrays.asList(names).subList(0, size))
+                .put(PurchaseItemSchema.PRICES_FIELD.name(), new IntArrayView(sums, size));
+        for (PriceAggregate aggregate : aggregates) {
+            columns.put(aggregate.columnName(), column(aggregate));
+        }
+        return columns;
+    }
+
+    private List<?> column(PriceAggregate aggregate) {
+
+        switch (aggregate) {
+            case SUM:
+                return new IntArrayView(sums, size);
+            case COUNT:
+                return new IntArrayView(counts, size);
+            case MIN:
+                return new IntArrayView(mins, size);
+            case MAX:
+                return new IntArrayView(maxs, size);
+            default:
+                double[] averages = new double[size];
+                for (int position = 0; position < size; position++) {
+                    averages[position] = (double) sums[position] / counts[position];
+                }
+                return new DoubleArrayView(averages, size);
+        }
+    }
+
+    private Object aggregate(PriceAggregate aggregate, int position) {
+
+        switch (aggregate) {
+            case SUM:
+                return sums[position];
+            case COUNT:
+                return counts[position];
+            case MIN:
+                return mins[position];
+            case MAX:
+                return maxs[position];
+            default:
+                return (double) sums[position] / counts[position];
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.json.transformers.aggregators;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.Locale;
+
+public enum PurchaseSummary {
+
+    /*
+        The totals of a whole purchase that can be added to the record, next to the merged items, as total_spend, item_count
+        and distinct_items fields. They come from the accumulator, filled while the items are read : no other pass over the items.
+     */
+
+    TOTAL_SPEND(Schema.OPTIONAL_INT64_SCHEMA),
+    ITEM_COUNT(Schema.OPTIONAL_INT32_SCHEMA),
+    DISTINCT_ITEMS(Schema.OPTIONAL_INT32_SCHEMA);
+
+    private final Schema schema;
+
+    PurchaseSummary(Schema schema) {
+        this.schema = schema;
+    }
+
+    public String fieldName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public Object value(PurchaseItemAccumulator accumulator) {
+
+        switch (this) {
+            case TOTAL_SPEND:
+                return accumulator.totalSpend();
+            case ITEM_COUNT:
+                return accumulator.itemCount();
+            default:
+                return accumulator.size();
+        }
+    }
+
+    public static PurchaseSummary forName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.json.transformers.catalog;
+
+import org.apache.kafka.connect.errors.DataException;
+import org.example.transformers.common.DirectBuffers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CatalogIndex {
+
+    /*
+        An immutable snapshot of the item catalog : a csv file whose first column is the item_id, with a header line naming the columns.
+        The file is memory mapped and parsed in place : the index item_id -> row is an open addressing table ( linear probing ) stored
+        off-heap, a slot being ( item_id, row + 1 ), 0 marking an empty slot, and each cell of a requested column is stored off-heap as
+        the ( offset, length ) of its bytes in the mapped file. A cell is decoded the first time it is looked up and kept in the snapshot,
+        so that only the values of the items actually sold are on the heap, and a lookup is an array read afterwards.
+        Lookups are lock free : two threads may decode the same cell, they store equal Strings.
+        The mapping is only valid while the snapshot is acquired : a reader acquires it, the catalog holds it as long as it is the
+        current one, and the last release unmaps the file, frees the tables ( see DirectBuffers ) and drops the decoded values.
+     */
+
+    private static final int SLOT_BYTES = 2 * Integer.BYTES;
+    private static final int CELL_BYTES = 2 * Integer.BYTES;
+
+    private final MappedByteBuffer file;
+    private final ByteBuffer table;
+    private final int mask;
+    private final int rows;
+
+    // cells[row][column] : the offset and the length of the value in the file, a negative length for a missing value
+    private final ByteBuffer cells;
+    private final List<String> columns;
+
+    // values[row * columns + column] : the decoded cells, null until looked up ( or missing, see cells )
+    private final String[] values;
+
+    // the readers and the catalog holding this snapshot, the buffers are released at 0
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private CatalogIndex(MappedByteBuffer file, ByteBuffer table, int mask, int rows, ByteBuffer cells, List<String> columns) {
+        this.file = file;
+        this.table = table;
+        this.mask = mask;
+        this.rows = rows;
+        this.cells = cells;
+        this.columns = columns;
+        this.values = new String[rows * columns.size()];
+    }
+
+    // the row of this item, -1 when it is not in the catalog
+    public int row(int itemId) {
+
+        int slot = mix(itemId) & mask;
+        while (true) {
+            int row = table.getInt(slot * SLOT_BYTES + Integer.BYTES);
+            if (row == 0) {
+                return -1;
+            }
+            if (table.getInt(slot * SLOT_BYTES) == itemId) {
+                return row - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public String value(int column, int row) {
+
+        int index = row * columns.size() + column;
+        String value = values[index];
+        if (value != null) {
+            return value;
+        }
+        int length = cells.getInt(index * CELL_BYTES + Integer.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        value = decode(file, cells.getInt(index * CELL_BYTES), length);
+        values[index] = value;
+        return value;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    // false when the snapshot has already been released by everyone
+    boolean tryAcquire() {
+
+        int count = references.get();
+        while (count > 0) {
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = references.get();
+        }
+        return false;
+    }
+
+    // the last release frees the mapping : the snapshot must not be read afterwards
+    public void release() {
+
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            Arrays.fill(values, null);
+            DirectBuffers.free(file);
+            DirectBuffers.free(table);
+            DirectBuffers.free(cells);
+        } else if (count < 0) {
+            throw new IllegalStateException("The catalog snapshot has already been released");
+        }
+    }
+
+    boolean released() {
+        return references.get() == 0;
+    }
+
+    /**
+     * Loads the catalog file, keeping the given columns ( all the columns after the item_id when empty ).
+     * A column missing from the header fails the load, a value missing from a shorter row is null.
+     */
+    public static CatalogIndex load(Path path, List<String> fields) throws IOException {
+
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return index(path, file, fields);
+        } catch (RuntimeException e) {
+            DirectBuffers.free(file);
+            throw e;
+        }
+    }
+
+    private static CatalogIndex index(Path path, MappedByteBuffer file, List<String> fields) {
+
+        CsvReader reader = new CsvReader(file);
+        if (!reader.readLine()) {
+            throw new DataException("The catalog " + path + " is empty, it must start with a header line");
+        }
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < reader.size; i++) {
+            header.add(reader.text(i));
+        }
+        List<String> columns = List.copyOf(fields.isEmpty() ? header.subList(1, header.size()) : fields);
+        int[] sourceColumns = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            sourceColumns[i] = header.indexOf(columns.get(i));
+            if (sourceColumns[i] < 0) {
+                throw new DataException("Unknown column " + columns.get(i) + " in the catalog " + path + ", its columns are " + header.subList(1, header.size()));
+            }
+        }
+
+        // read the rows, their cells written in a growing heap buffer first
+        int[] itemIds = new int[1024];
+        ByteBuffer rowCells = ByteBuffer.allocate(itemIds.length * Math.max(1, columns.size()) * CELL_BYTES);
+        int rows = 0;
+        while (reader.readLine()) {
+            if (reader.size == 1 && reader.length(0) == 0) {
+                continue;
+            }
+            if (rows == itemIds.length) {
+                itemIds = Arrays.copyOf(itemIds, rows * 2);
+                rowCells = ByteBuffer.allocate(rowCells.capacity() * 2).put(rowCells.flip());
+            }
+            try {
+                itemIds[rows] = Integer.parseInt(reader.text(0));
+            } catch (NumberFormatException e) {
+                throw new DataException("Invalid item_id " + reader.text(0) + " at row " + (rows + 1) + " of the catalog " + path);
+            }
+            for (int column : sourceColumns) {
+                boolean present = column < reader.size;
+                rowCells.putInt(present ? reader.start(column) : 0).putInt(present ? reader.length(column) : -1);
+            }
+            rows++;
+        }
+        ByteBuffer cells = ByteBuffer.allocateDirect(Math.max(1, rowCells.position())).put(rowCells.flip());
+
+        // the index, half full at most ( a later row of the same item wins )
+        int slots = Math.max(2, Integer.highestOneBit(Math.max(1, rows) * 2 - 1) << 1);
+        ByteBuffer table = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+        int mask = slots - 1;
+        for (int row = 0; row < rows; row++) {
+            int slot = mix(itemIds[row]) & mask;
+            while (table.getInt(slot * SLOT_BYTES + Integer.BYTES) != 0 && table.getInt(slot * SLOT_BYTES) != itemIds[row]) {
+                slot = (slot + 1) & mask;
+            }
+            table.putInt(slot * SLOT_BYTES, itemIds[row]);
+            table.putInt(slot * SLOT_BYTES + Integer.BYTES, row + 1);
+        }
+        return new CatalogIndex(file, table, mask, rows, cells, columns);
+    }
+
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    // a bulk copy of the bytes, on a view so that the position of the file is left alone
+    private static String decode(ByteBuffer file, int offset, int length) {
+
+        byte[] bytes = new byte[length];
+        file.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // comma separated values, one line per row, no quoting : the catalog is written by our own exports
+    private static final class CsvReader {
+
+        private final ByteBuffer file;
+
+        // the ( start, end ) of each value of the last line read, trimmed
+        private int[] bounds = new int[16];
+        private int size;
+
+        private CsvReader(ByteBuffer file) {
+            this.file = file;
+        }
+
+        private boolean readLine() {
+
+            size = 0;
+            if (!file.hasRemaining()) {
+                return false;
+            }
+            int start = file.position();
+            while (file.hasRemaining()) {
+                byte b = file.get();
+                if (b == ',' || b == '\n') {
+                    add(start, file.position() - 1);
+                    start = file.position();
+                    if (b == '\n') {
+                        return true;
+                    }
+                }
+            }
+            add(start, file.position());
+            return true;
+        }
+
+        // like String.trim, the \r of a windows line included
+        private void add(int start, int end) {
+
+            while (start < end && (file.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (file.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+            if (size * 2 == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size * 2] = start;
+            bounds[size * 2 + 1] = end;
+            size++;
+        }
+
+        private int start(int index) {
+            return bounds[index * 2];
+        }
+
+        private int length(int index) {
+            return bounds[index * 2 + 1] - bounds[index * 2];
+        }
+
+        private String text(int index) {
+            return decode(file, start(index), length(index));
+        }
+    }
+}
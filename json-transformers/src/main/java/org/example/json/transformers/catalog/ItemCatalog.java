@@ -0,0 +1,162 @@
+package org.example.json.transformers.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public final class ItemCatalog implements AutoCloseable {
+
+    /*
+        Adds the columns of the item catalog ( category, sku, ... ) to each item, by item_id.
+        The catalog is a CatalogIndex snapshot behind a volatile field : a record acquires it once, and a reload swaps it
+        for a new snapshot, built aside when the file has changed ( its size or its modification time ). The previous snapshot
+        is released by the catalog, and unmapped once the records still reading it release it too.
+        Replace the file atomically ( write another file and move it ), so that a reload never reads a half written catalog,
+        and the snapshots still reading the previous file keep their own mapping of it.
+        A reload that fails keeps the previous snapshot.
+     */
+
+    private final Path path;
+    // the catalog columns added to the items, fixed by the first load when not configured
+    private final List<String> fields;
+    private final ScheduledExecutorService reloader;
+
+    private volatile CatalogIndex index;
+    private FileTime loadedTime;
+    private long loadedSize;
+    private volatile long reloads;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public ItemCatalog(Path path, List<String> fields, long reloadMillis) throws IOException {
+
+        this.path = path;
+        this.index = load(fields);
+        this.fields = index.columns();
+        if (reloadMillis > 0) {
+            this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "item-catalog-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadMillis, reloadMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.reloader = null;
+        }
+    }
+
+    // the catalog of a transformer configuration, null without a path
+    public static ItemCatalog open(String path, List<String> fields, long reloadMillis, String configName) {
+
+        if (path == null) {
+            return null;
+        }
+        try {
+            return new ItemCatalog(Paths.get(path), fields, reloadMillis);
+        } catch (IOException | DataException e) {
+            throw new ConfigException(configName, path, "Cannot load the item catalog : " + e.getMessage());
+        }
+    }
+
+    private CatalogIndex load(List<String> columns) throws IOException {
+
+        FileTime time = Files.getLastModifiedTime(path);
+        long size = Files.size(path);
+        CatalogIndex loaded = CatalogIndex.load(path, columns);
+        loadedTime = time;
+        loadedSize = size;
+        log.info("Loaded the item catalog {} : {} items", path, loaded.rows());
+        return loaded;
+    }
+
+    private void reloadIfChanged() {
+
+        try {
+            if (Files.getLastModifiedTime(path).equals(loadedTime) && Files.size(path) == loadedSize) {
+                return;
+            }
+            CatalogIndex previous = index;
+            index = load(fields);
+            previous.release();
+            reloads++;
+        } catch (Exception e) {
+            log.warn("Could not reload the item catalog {}, keeping the previous one", path, e);
+        }
+    }
+
+    // the current snapshot, to release once read : acquire it once per record, so that all the items of a record see the same catalog
+    public CatalogIndex acquire() {
+
+        while (true) {
+            CatalogIndex current = index;
+            if (current.tryAcquire()) {
+                return current;
+            }
+            // released by a reload in the meantime, the field holds the next snapshot
+        }
+    }
+
+    /**
+     * Puts the catalog columns of this item in the given fields of the item struct, in the order of the catalog fields.
+     * An item missing from the catalog keeps null values.
+     */
+    public static void enrich(CatalogIndex index, Struct item, int itemId, Field[] catalogFields) {
+
+        int row = index.row(itemId);
+        if (row < 0) {
+            return;
+        }
+        for (int column = 0; column < catalogFields.length; column++) {
+            item.put(catalogFields[column], index.value(column, row));
+        }
+    }
+
+    // the fields of the item schema that hold the catalog columns
+    public Field[] fields(Schema itemSchema) {
+
+        Field[] catalogFields = new Field[fields.size()];
+        for (int i = 0; i < catalogFields.length; i++) {
+            catalogFields[i] = itemSchema.field(fields.get(i));
+        }
+        return catalogFields;
+    }
+
+    public List<String> fieldNames() {
+        return fields;
+    }
+
+    public long reloads() {
+        return reloads;
+    }
+
+    @Override
+    public void close() {
+        // the current snapshot is released once, however often the transformer is closed
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (reloader != null) {
+            reloader.shutdownNow();
+            try {
+                reloader.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        index.release();
+    }
+}
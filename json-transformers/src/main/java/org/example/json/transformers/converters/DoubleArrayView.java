@@ -0,0 +1,32 @@
+package org.example.json.transformers.converters;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+public final class DoubleArrayView extends AbstractList<Double> implements RandomAccess {
+
+    /*
+        A Connect array of float64 over a primitive double[], see IntArrayView.
+     */
+
+    private final double[] values;
+    private final int size;
+
+    public DoubleArrayView(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public Double get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
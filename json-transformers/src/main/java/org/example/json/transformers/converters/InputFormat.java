@@ -0,0 +1,37 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.kafka.common.config.ConfigDef;
+
+import java.util.Locale;
+
+public enum InputFormat {
+
+    /*
+        The encodings of the json field : text json, or binary json ( Smile, CBOR ) which is smaller and faster to parse.
+        They all give the same streaming parser, so the decoding code is the same. The binary formats can only be read from bytes.
+        The factories are thread safe and shared.
+     */
+
+    JSON(new JsonFactory()),
+    SMILE(new SmileFactory()),
+    CBOR(new CBORFactory());
+
+    public static final ConfigDef.Validator VALIDATOR = ConfigDef.CaseInsensitiveValidString.in("json", "smile", "cbor");
+
+    private final JsonFactory factory;
+
+    InputFormat(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    public JsonFactory factory() {
+        return factory;
+    }
+
+    public static InputFormat forName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.json.transformers.converters;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+public final class IntArrayView extends AbstractList<Integer> implements RandomAccess {
+
+    /*
+        A Connect array of int32 over a primitive int[] : the record holds 4 bytes per value instead of an Integer object,
+        a value is only boxed while the converter reads it. The view is read only, and the array must not change afterwards.
+     */
+
+    private final int[] values;
+    private final int size;
+
+    public IntArrayView(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.json.transformers.converters;
+
+import java.util.Arrays;
+
+public final class JsonArraySplitter {
+
+    /*
+        Finds where a text json array can be cut between two of its elements, without parsing it : a single pass that only
+        follows the nesting depth and the strings ( with their escapes ), so the commas inside the elements are skipped.
+        In UTF-8 the bytes of a multi byte character are all >= 0x80, they never look like a bracket, a quote or a comma.
+        The cuts are the commas of the top level array, about every length / chunks characters, with the opening and the
+        closing brackets as the first and last cut : chunk i is the text between cuts[i] and cuts[i + 1], both excluded.
+        The scan gives up ( null ) on anything but a well closed array, the parser will report the error.
+     */
+
+    private JsonArraySplitter() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static int[] split(byte[] json, int offset, int length, int chunks) {
+
+        int end = offset + length;
+        int start = offset;
+        while (start < end && isWhitespace(json[start])) {
+            start++;
+        }
+        if (start == end || json[start] != '[') {
+            return null;
+        }
+        int[] cuts = new int[chunks + 1];
+        cuts[0] = start;
+        int count = 1;
+        long chunkLength = Math.max(1, (end - start) / chunks);
+        long nextCut = start + chunkLength;
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start + 1; i < end; i++) {
+
+            byte current = json[i];
+            if (inString) {
+                if (current == '\\') {
+                    i++;
+                } else if (current == '"') {
+                    inString = false;
+                }
+            } else if (current == '"') {
+                inString = true;
+            } else if (current == '[' || current == '{') {
+                depth++;
+            } else if (current == ']' || current == '}') {
+                if (depth == 0) {
+                    cuts[count++] = i;
+                    return count < cuts.length ? Arrays.copyOf(cuts, count) : cuts;
+                }
+                depth--;
+            } else if (current == ',' && depth == 0 && i >= nextCut && count < chunks) {
+                cuts[count++] = i;
+                nextCut = i + chunkLength;
+            }
+        }
+        return null;
+    }
+
+    public static int[] split(String json, int chunks) {
+
+        int end = json.length();
+        int start = 0;
+        while (start < end && isWhitespace(json.charAt(start))) {
+            start++;
+        }
+        if (start == end || json.charAt(start) != '[') {
+            return null;
+        }
+        int[] cuts = new int[chunks + 1];
+        cuts[0] = start;
+        int count = 1;
+        long chunkLength = Math.max(1, (end - start) / chunks);
+        long nextCut = start + chunkLength;
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start + 1; i < end; i++) {
+
+            char current = json.charAt(i);
+            if (inString) {
+                if (current == '\\') {
+                    i++;
+                } else if (current == '"') {
+                    inString = false;
+                }
+            } else if (current == '"') {
+                inString = true;
+            } else if (current == '[' || current == '{') {
+                depth++;
+            } else if (current == ']' || current == '}') {
+                if (depth == 0) {
+                    cuts[count++] = i;
+                    return count < cuts.length ? Arrays.copyOf(cuts, count) : cuts;
+                }
+                depth--;
+            } else if (current == ',' && depth == 0 && i >= nextCut && count < chunks) {
+                cuts[count++] = i;
+                nextCut = i + chunkLength;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWhitespace(int character) {
+        return character == ' ' || character == '\n' || character == '\r' || character == '\t';
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public final class JsonInput {
+
+    /*
+        The json of a field can be a string or bytes ( Connect BYTES : a byte[] or a ByteBuffer ), binary json ( see InputFormat ) only bytes.
+        Bytes are parsed as they are, by the byte based parser of Jackson : a large document is never copied into a UTF-16 String.
+        A ByteBuffer is read in place when it has an array, its position is left untouched.
+     */
+
+    private JsonInput() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static JsonParser createParser(JsonFactory factory, Object value) throws IOException {
+
+        if (value instanceof String) {
+            if (!factory.canUseCharArrays()) {
+                throw new DataException("A " + factory.getFormatName() + " field must be bytes, not a string");
+            }
+            return factory.createParser((String) value);
+        }
+        if (value instanceof byte[]) {
+            return factory.createParser((byte[]) value);
+        }
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) value;
+            if (buffer.hasArray()) {
+                return factory.createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            // a direct buffer : one copy, still no decoding
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return factory.createParser(bytes);
+        }
+        throw new DataException("Json field must be a string or bytes, not " + value.getClass().getName());
+    }
+
+    // the field schemas that can hold json
+    public static boolean accepts(Schema schema) {
+        return schema.type() == Schema.Type.STRING || schema.type() == Schema.Type.BYTES;
+    }
+}
@@ -0,0 +1,287 @@
+package org.example.json.transformers.converters;
+
+import org.apache.kafka.connect.errors.DataException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+public final class ParallelItemDecoder {
+
+    /*
+        Decodes a very large text json array of purchased items on several threads ( a few megabytes, tens of thousands of items ).
+        The array is cut between its elements by a pre-scan ( see JsonArraySplitter ), each chunk is parsed in place into primitive
+        columns ( see PurchaseItemColumns ), the parser reading the elements of the chunk between two brackets of its own : no copy
+        of the chunk. Then the chunks are given to the handler one after the other : the items keep their order and the handler
+        is only called from the thread of the record.
+        The pool is shared by all the transformers of the worker and bounded, so the tasks of a worker never take all its cores.
+        It is created by the first transformer that decodes in parallel, and shut down when the last one is closed.
+     */
+
+    // a chunk per thread would wait for the slowest one
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // null while no transformer uses it, the users being counted under the class lock
+    private static volatile ForkJoinPool pool;
+    private static int users;
+
+    private ParallelItemDecoder() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    // to call when a transformer is configured to decode in parallel, release it when the transformer is closed
+    public static void acquire() {
+        acquire(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    // the first user decides the parallelism
+    static synchronized void acquire(int parallelism) {
+
+        if (users++ == 0) {
+            pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("purchase-item-decoder-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+    }
+
+    public static synchronized void release() {
+
+        if (users == 0) {
+            throw new IllegalStateException("The parallel item decoder has no user to release");
+        }
+        if (--users == 0) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    // the size of the json ( characters for a string ), -1 when it cannot be split
+    public static int size(Object value) {
+
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).remaining();
+        }
+        return -1;
+    }
+
+    /**
+     * Gives the items of the text json array to the handler, in order, the array being decoded in parallel.
+     * @return the number of items read, or -1 when the array cannot be split ( too small, or not a well closed array ) : use the sequential parser
+     */
+    public static int parse(Object value, StringCache names, PurchaseItemHandler handler) throws IOException {
+
+        ForkJoinPool decoders = pool;
+        if (decoders == null || decoders.getParallelism() < 2) {
+            return -1;
+        }
+        int chunks = decoders.getParallelism() * CHUNKS_PER_THREAD;
+        List<Callable<PurchaseItemColumns>> tasks = value instanceof String ? stringTasks((String) value, chunks, names) : bytesTasks(value, chunks, names);
+        if (tasks == null) {
+            return -1;
+        }
+
+        int count = 0;
+        for (Future<PurchaseItemColumns> chunk : decoders.invokeAll(tasks)) {
+            PurchaseItemColumns items = join(chunk);
+            items.forEach(handler);
+            count += items.size();
+        }
+        return count;
+    }
+
+    private static List<Callable<PurchaseItemColumns>> stringTasks(String json, int chunks, StringCache names) {
+
+        int[] cuts = JsonArraySplitter.split(json, chunks);
+        if (cuts == null || cuts.length < 3) {
+            return null;
+        }
+        List<Callable<PurchaseItemColumns>> tasks = new ArrayList<>(cuts.length - 1);
+        for (int i = 0; i < cuts.length - 1; i++) {
+            int start = cuts[i] + 1;
+            int end = cuts[i + 1];
+            tasks.add(() -> decode(InputFormat.JSON.factory().createParser(new BracketedChars(json, start, end)), names));
+        }
+        return tasks;
+    }
+
+    private static List<Callable<PurchaseItemColumns>> bytesTasks(Object value, int chunks, StringCache names) {
+
+        byte[] json;
+        int offset;
+        int length;
+        if (value instanceof byte[]) {
+            json = (byte[]) value;
+            offset = 0;
+            length = json.length;
+        } else {
+            ByteBuffer buffer = (ByteBuffer) value;
+            if (buffer.hasArray()) {
+                json = buffer.array();
+                offset = buffer.arrayOffset() + buffer.position();
+            } else {
+                // a direct buffer : one copy ( as for the sequential parser )
+                json = new byte[buffer.remaining()];
+                buffer.duplicate().get(json);
+                offset = 0;
+            }
+            length = buffer.remaining();
+        }
+
+        int[] cuts = JsonArraySplitter.split(json, offset, length, chunks);
+        if (cuts == null || cuts.length < 3) {
+            return null;
+        }
+        List<Callable<PurchaseItemColumns>> tasks = new ArrayList<>(cuts.length - 1);
+        for (int i = 0; i < cuts.length - 1; i++) {
+            int start = cuts[i] + 1;
+            int end = cuts[i + 1];
+            tasks.add(() -> decode(InputFormat.JSON.factory().createParser(new BracketedBytes(json, start, end)), names));
+        }
+        return tasks;
+    }
+
+    private static PurchaseItemColumns decode(JsonParser chunk, StringCache names) throws IOException {
+
+        PurchaseItemColumns items = new PurchaseItemColumns(EXPECTED_ITEMS);
+        try (chunk) {
+            PurchaseItemConverter.parse(chunk, names, items);
+        }
+        return items;
+    }
+
+    // the chunk buffers grow past this
+    private static final int EXPECTED_ITEMS = 256;
+
+    private static PurchaseItemColumns join(Future<PurchaseItemColumns> chunk) throws IOException {
+
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding the purchased items", e);
+        } catch (ExecutionException e) {
+            // the pool wraps the parsing errors ( once or twice ), the transformers expect them as they are
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof DataException) {
+                    throw (DataException) cause;
+                }
+            }
+            throw new IOException("Cannot decode the purchased items", e.getCause());
+        }
+    }
+
+    // 0 while no transformer decodes in parallel
+    public static int parallelism() {
+        ForkJoinPool decoders = pool;
+        return decoders == null ? 0 : decoders.getParallelism();
+    }
+
+    // the characters between start and end, as the elements of an array : '[' first and ']' last
+    private static final class BracketedChars extends Reader {
+
+        private final String json;
+        private final int end;
+        private int position;
+        private boolean opened;
+        private boolean closed;
+
+        private BracketedChars(String json, int start, int end) {
+            this.json = json;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            if (!opened) {
+                opened = true;
+                buffer[offset + read++] = '[';
+            }
+            int count = Math.min(length - read, end - position);
+            json.getChars(position, position + count, buffer, offset + read);
+            position += count;
+            read += count;
+            if (read < length && position == end && !closed) {
+                closed = true;
+                buffer[offset + read++] = ']';
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // the bytes between start and end, as the elements of an array : '[' first and ']' last
+    private static final class BracketedBytes extends InputStream {
+
+        private final byte[] json;
+        private final int end;
+        private int position;
+        private boolean opened;
+        private boolean closed;
+
+        private BracketedBytes(byte[] json, int start, int end) {
+            this.json = json;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            if (!opened) {
+                opened = true;
+                buffer[offset + read++] = '[';
+            }
+            int count = Math.min(length - read, end - position);
+            System.arraycopy(json, position, buffer, offset + read, count);
+            position += count;
+            read += count;
+            if (read < length && position == end && !closed) {
+                closed = true;
+                buffer[offset + read++] = ']';
+            }
+            return read == 0 ? -1 : read;
+        }
+    }
+}
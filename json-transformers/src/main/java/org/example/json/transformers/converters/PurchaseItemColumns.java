@@ -0,0 +1,64 @@
+package org.example.json.transformers.converters;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.example.json.transformers.schemas.PurchaseItemSchema;
+
+import java.util.Arrays;
+
+public final class PurchaseItemColumns implements PurchaseItemHandler {
+
+    /*
+        Collects the purchased items column by column, in primitive buffers that double when full,
+        and gives them as a struct of parallel arrays ( see PurchaseItemSchema.PURCHASE_ITEM_COLUMNS_SCHEMA ).
+     */
+
+    private int size;
+    private int[] itemIds;
+    private String[] names;
+    private int[] prices;
+
+    public PurchaseItemColumns(int expectedItems) {
+
+        int capacity = Math.max(4, expectedItems);
+        itemIds = new int[capacity];
+        names = new String[capacity];
+        prices = new int[capacity];
+    }
+
+    @Override
+    public void item(int itemId, String name, int price) {
+
+        if (size == itemIds.length) {
+            int capacity = size * 2;
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        itemIds[size] = itemId;
+        names[size] = name;
+        prices[size] = price;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // gives the items to the handler, in order
+    public void forEach(PurchaseItemHandler handler) {
+
+        for (int i = 0; i < size; i++) {
+            handler.item(itemIds[i], names[i], prices[i]);
+        }
+    }
+
+    public Struct toStruct() {
+
+        Schema schema = PurchaseItemSchema.PURCHASE_ITEM_COLUMNS_SCHEMA;
+        return new Struct(schema)
+                .put(PurchaseItemSchema.ITEM_IDS_FIELD, new IntArrayView(itemIds, size))
+                .put(PurchaseItemSchema.NAMES_FIELD, Arrays.asList(names).subList(0, size))
+                .put(PurchaseItemSchema.PRICES_FIELD, new IntArrayView(prices, size));
+    }
+}
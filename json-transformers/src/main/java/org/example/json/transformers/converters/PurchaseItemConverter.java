@@ -1,33 +1,203 @@
 package org.example.json.transformers.converters;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Struct;
-import org.example.json.transformers.dtos.ItemDTO;
 import org.example.json.transformers.schemas.PurchaseItemSchema;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-@Slf4j
 public final class PurchaseItemConverter {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /*
+        The json array is read token by token and each object is handed over right away : no tree, no DTO, a single pass.
+        convertToStructArray builds a struct per item, parse lets the caller decide what to keep ( the merge only keeps the totals ).
+        The factories are shared and thread safe ( see InputFormat ), their parsers recycle their buffers from one record to the other.
+        A text json array larger than the parallel threshold is decoded on several threads ( see ParallelItemDecoder ), 0 never does.
+     */
+
+    private static final Field ITEM_ID_FIELD = PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT.field("item_id");
+    private static final Field NAME_FIELD = PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT.field("name");
+    private static final Field PRICE_FIELD = PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT.field("price");
+
+    private static final int ALL_FIELDS = 0b111;
 
     private PurchaseItemConverter() {
         throw new IllegalStateException("Cannot instantiate class");
     }
 
-    public static List<Struct> convertToStructArray(String value) throws JsonProcessingException {
+    public static List<Struct> convertToStructArray(Object value) throws IOException {
+        return convertToStructArray(value, InputFormat.JSON);
+    }
+
+    public static List<Struct> convertToStructArray(Object value, InputFormat format) throws IOException {
+        return convertToStructArray(value, format, null);
+    }
+
+    public static List<Struct> convertToStructArray(Object value, InputFormat format, StringCache names) throws IOException {
+        return convertToStructArray(value, format, names, 0);
+    }
+
+    public static List<Struct> convertToStructArray(Object value, InputFormat format, StringCache names, int parallelThreshold) throws IOException {
+
+        if (value == null) {
+            return null;
+        }
+        List<Struct> items = new ArrayList<>();
+        parse(value, format, names, parallelThreshold, (itemId, name, price) -> {
+            Struct item = new Struct(PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT)
+                    .put(ITEM_ID_FIELD, itemId)
+                    .put(NAME_FIELD, name)
+                    .put(PRICE_FIELD, price);
+            items.add(item);
+        });
+        return items;
+    }
+
+    // the items as parallel arrays ( see PurchaseItemColumns ) : no struct per item
+    public static Struct convertToColumns(Object value, InputFormat format, StringCache names) throws IOException {
+        return convertToColumns(value, format, names, 0);
+    }
+
+    public static Struct convertToColumns(Object value, InputFormat format, StringCache names, int parallelThreshold) throws IOException {
+
+        if (value == null) {
+            return null;
+        }
+        PurchaseItemColumns columns = new PurchaseItemColumns(EXPECTED_ITEMS);
+        parse(value, format, names, parallelThreshold, columns);
+        return columns.toStruct();
+    }
+
+    // the column buffers grow past this
+    private static final int EXPECTED_ITEMS = 16;
+
+    /**
+     * Reads the json array of purchased items ( a string, or bytes see JsonInput ) and gives each item to the handler, in order, without building it.
+     * The names are taken from the cache when it is not null.
+     * @return the number of items read
+     */
+    public static int parse(Object value, PurchaseItemHandler handler) throws IOException {
+        return parse(value, InputFormat.JSON, null, handler);
+    }
+
+    // a text json array of at least parallelThreshold bytes ( characters for a string ) is decoded in parallel, 0 to never do it
+    public static int parse(Object value, InputFormat format, StringCache names, int parallelThreshold, PurchaseItemHandler handler) throws IOException {
+
+        if (parallelThreshold > 0 && format == InputFormat.JSON && ParallelItemDecoder.size(value) >= parallelThreshold) {
+            int count = ParallelItemDecoder.parse(value, names, handler);
+            if (count >= 0) {
+                return count;
+            }
+        }
+        return parse(value, format, names, handler);
+    }
+
+    public static int parse(Object value, InputFormat format, StringCache names, PurchaseItemHandler handler) throws IOException {
+
+        try (JsonParser parser = JsonInput.createParser(format.factory(), value)) {
+            return parse(parser, names, handler);
+        }
+    }
+
+    // the parser is before the array
+    static int parse(JsonParser parser, StringCache names, PurchaseItemHandler handler) throws IOException {
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array of purchased items");
+        }
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            readItem(parser, names, handler);
+            count++;
+        }
+        return count;
+    }
+
+    private static void readItem(JsonParser parser, StringCache names, PurchaseItemHandler handler) throws IOException {
+
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a purchased item object");
+        }
+        int itemId = 0;
+        String name = null;
+        int price = 0;
+        int readFields = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+            // field names are canonicalized by the parser, no string is built for them
+            String fieldName = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+                case "item_id":
+                    itemId = readInt(parser, token);
+                    readFields |= 0b001;
+                    break;
+                case "name":
+                    name = readName(parser, token, names);
+                    readFields |= 0b010;
+                    break;
+                case "price":
+                    price = readInt(parser, token);
+                    readFields |= 0b100;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (readFields != ALL_FIELDS) {
+            throw new JsonParseException(parser, "Purchased item without item_id, name or price");
+        }
+        handler.item(itemId, name, price);
+    }
+
+    // only a json integer that fits an int : a string, a decimal or a null is a wrong item, not a 0
+    private static int readInt(JsonParser parser, JsonToken token) throws IOException {
+
+        if (token != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT) {
+            throw wrongValue(parser, token, "an int");
+        }
+        return parser.getIntValue();
+    }
+
+    private static String readName(JsonParser parser, JsonToken token, StringCache names) throws IOException {
+
+        if (token != JsonToken.VALUE_STRING) {
+            throw wrongValue(parser, token, "a string");
+        }
+        return names != null ? names.get(parser) : parser.getText();
+    }
+
+    // a parse failure like a missing field : the record is given back untouched, the task goes on
+    // an object or an array is skipped first, the parser is left after the value whatever the caller does next
+    private static JsonParseException wrongValue(JsonParser parser, JsonToken token, String expected) throws IOException {
+
+        String fieldName = parser.currentName();
+        parser.skipChildren();
+        return new JsonParseException(parser, "Purchased item with " + describe(token) + " " + fieldName + ", expected " + expected);
+    }
+
+    private static String describe(JsonToken token) {
 
-        Arrays.stream(MAPPER.readValue(value, ItemDTO[].class)).forEach(e -> log.info("Mapped DTO : {}", e.toString()));
-        return Arrays.stream(MAPPER.readValue(value, ItemDTO[].class))
-                .map(item -> new Struct(PurchaseItemSchema.PURCHASE_ITEM_SCHEMA_FLAT)
-                        .put("item_id", item.getItemId())
-                        .put("name", item.getName())
-                        .put("price", item.getPrice())
-                ).collect(Collectors.toList());
+        switch (token) {
+            case START_OBJECT:
+                return "an object";
+            case START_ARRAY:
+                return "an array";
+            case VALUE_NULL:
+                return "a null";
+            case VALUE_STRING:
+                return "a string";
+            case VALUE_NUMBER_INT:
+                return "an out of range";
+            case VALUE_NUMBER_FLOAT:
+                return "a decimal";
+            default:
+                return "a boolean";
+        }
     }
 }
@@ -0,0 +1,12 @@
+package org.example.json.transformers.converters;
+
+@FunctionalInterface
+public interface PurchaseItemHandler {
+
+    /*
+        Receives the purchased items one by one, while the json array is read.
+        Nothing is kept by the parser : what the handler does not keep is garbage right away.
+     */
+
+    void item(int itemId, String name, int price);
+}
@@ -0,0 +1,106 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.example.transformers.common.CacheStats;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class StringCache implements CacheStats {
+
+    /*
+        Deduplicates the short strings that come back record after record ( item names of a catalog ) : the text is compared in the
+        buffer of the parser, so a string already cached costs no allocation at all, only a new one is built.
+        The cache is direct mapped : a slot per hash, a new string takes the slot of the previous one. No lock : the slots are
+        written and read racily, which is safe for Strings ( immutable, with final fields ), at worst an entry is lost.
+     */
+
+    // longer strings are not worth keeping
+    private static final int MAX_LENGTH = 64;
+
+    private final String[] strings;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StringCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("String cache capacity must be positive: " + capacity);
+        }
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.strings = new String[slots];
+        this.mask = slots - 1;
+    }
+
+    // the text of the current token of the parser
+    public String get(JsonParser parser) throws IOException {
+
+        int length = parser.getTextLength();
+        if (length > MAX_LENGTH) {
+            misses.increment();
+            return parser.getText();
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+
+        // the same hash as String.hashCode, which the cached strings have already computed
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = strings[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, chars, offset, length)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        if (cached != null) {
+            evictions.increment();
+        }
+        String string = new String(chars, offset, length);
+        strings[slot] = string;
+        return string;
+    }
+
+    private static boolean matches(String string, char[] chars, int offset, int length) {
+
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long hits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long misses() {
+        return misses.sum();
+    }
+
+    // a string that took the slot of another one
+    @Override
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public int capacity() {
+        return strings.length;
+    }
+}
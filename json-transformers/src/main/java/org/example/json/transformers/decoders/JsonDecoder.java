@@ -0,0 +1,16 @@
+package org.example.json.transformers.decoders;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface JsonDecoder {
+
+    /*
+        Reads one json value into its Connect representation.
+        The parser is on the first token of the value when called, and is left on its last token.
+     */
+
+    Object decode(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,177 @@
+package org.example.json.transformers.decoders;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class JsonDecoders {
+
+    /*
+        Compiles a Connect schema into a tree of decoders, once : at decoding time there is no schema to walk, no type to switch on,
+        each decoder checks the json token it expects and reads it with the matching parser method.
+        The json types must match the schema ( a string is not read as a number ), except for string fields that take any value,
+        an object or an array being kept as its json text.
+     */
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonDecoders() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    public static JsonDecoder compile(Schema schema) {
+
+        JsonDecoder decoder = valueDecoder(schema);
+        boolean optional = schema.isOptional();
+        return parser -> {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                if (optional) {
+                    return null;
+                }
+                throw new JsonParseException(parser, "Null value for a required " + schema.type().getName());
+            }
+            return decoder.decode(parser);
+        };
+    }
+
+    private static JsonDecoder valueDecoder(Schema schema) {
+
+        switch (schema.type()) {
+            case BOOLEAN:
+                return parser -> {
+                    JsonToken token = parser.currentToken();
+                    if (token != JsonToken.VALUE_TRUE && token != JsonToken.VALUE_FALSE) {
+                        throw mismatch(parser, schema);
+                    }
+                    return token == JsonToken.VALUE_TRUE;
+                };
+            case INT8:
+                return parser -> {
+                    int value = intValue(parser, schema);
+                    if ((byte) value != value) {
+                        throw new JsonParseException(parser, "Value " + value + " out of range of int8");
+                    }
+                    return (byte) value;
+                };
+            case INT16:
+                return parser -> {
+                    int value = intValue(parser, schema);
+                    if ((short) value != value) {
+                        throw new JsonParseException(parser, "Value " + value + " out of range of int16");
+                    }
+                    return (short) value;
+                };
+            case INT32:
+                return parser -> intValue(parser, schema);
+            case INT64:
+                return parser -> {
+                    if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                        throw mismatch(parser, schema);
+                    }
+                    return parser.getLongValue();
+                };
+            case FLOAT32:
+                return parser -> {
+                    if (!parser.currentToken().isNumeric()) {
+                        throw mismatch(parser, schema);
+                    }
+                    return parser.getFloatValue();
+                };
+            case FLOAT64:
+                return parser -> {
+                    if (!parser.currentToken().isNumeric()) {
+                        throw mismatch(parser, schema);
+                    }
+                    return parser.getDoubleValue();
+                };
+            case STRING:
+                return JsonDecoders::text;
+            case BYTES:
+                return parser -> {
+                    if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                        throw mismatch(parser, schema);
+                    }
+                    return parser.getBinaryValue();
+                };
+            case ARRAY:
+                return arrayDecoder(schema);
+            case MAP:
+                return mapDecoder(schema);
+            case STRUCT:
+                return new StructDecoder(schema);
+            default:
+                throw new DataException("Cannot decode json into a " + schema.type().getName());
+        }
+    }
+
+    private static JsonDecoder arrayDecoder(Schema schema) {
+
+        JsonDecoder elementDecoder = compile(schema.valueSchema());
+        return parser -> {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw mismatch(parser, schema);
+            }
+            List<Object> values = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                values.add(elementDecoder.decode(parser));
+            }
+            return values;
+        };
+    }
+
+    private static JsonDecoder mapDecoder(Schema schema) {
+
+        if (schema.keySchema().type() != Schema.Type.STRING) {
+            throw new DataException("Cannot decode json into a map with " + schema.keySchema().type().getName() + " keys");
+        }
+        JsonDecoder valueDecoder = compile(schema.valueSchema());
+        return parser -> {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw mismatch(parser, schema);
+            }
+            Map<String, Object> values = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                parser.nextToken();
+                values.put(key, valueDecoder.decode(parser));
+            }
+            return values;
+        };
+    }
+
+    private static int intValue(JsonParser parser, Schema schema) throws IOException {
+
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw mismatch(parser, schema);
+        }
+        return parser.getIntValue();
+    }
+
+    // any json value as a string : the text of a scalar, the json of an object or an array
+    private static String text(JsonParser parser) throws IOException {
+
+        if (!parser.currentToken().isStructStart()) {
+            return parser.getText();
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
+    static JsonParseException mismatch(JsonParser parser, Schema schema) {
+        return new JsonParseException(parser, "Unexpected " + parser.currentToken() + " for a " + schema.type().getName());
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.json.transformers.decoders;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+import java.io.IOException;
+
+final class StructDecoder implements JsonDecoder {
+
+    /*
+        The field names of the schema are interned, like the field names read by the parser, so finding the slot of a json field
+        is a reference comparison. The slot after the last one read is tried first : json written from the same query
+        has its fields in the same order, and then each field is found at the first try.
+        Unknown json fields are skipped, missing optional fields stay null.
+     */
+
+    private final Schema schema;
+    private final String[] names;
+    private final Field[] fields;
+    private final JsonDecoder[] decoders;
+    private final Field[] requiredFields;
+
+    StructDecoder(Schema schema) {
+
+        this.schema = schema;
+        this.fields = schema.fields().toArray(new Field[0]);
+        this.names = new String[fields.length];
+        this.decoders = new JsonDecoder[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields[i].name().intern();
+            decoders[i] = JsonDecoders.compile(fields[i].schema());
+        }
+        this.requiredFields = schema.fields().stream()
+                .filter(field -> !field.schema().isOptional() && field.schema().defaultValue() == null)
+                .toArray(Field[]::new);
+    }
+
+    @Override
+    public Object decode(JsonParser parser) throws IOException {
+
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw JsonDecoders.mismatch(parser, schema);
+        }
+        Struct struct = new Struct(schema);
+        int expected = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+            int slot = slot(parser.currentName(), expected);
+            parser.nextToken();
+            if (slot < 0) {
+                parser.skipChildren();
+                continue;
+            }
+            struct.put(fields[slot], decoders[slot].decode(parser));
+            expected = slot + 1;
+        }
+        for (Field field : requiredFields) {
+            if (struct.get(field) == null) {
+                throw new JsonParseException(parser, "Missing required field " + field.name());
+            }
+        }
+        return struct;
+    }
+
+    private int slot(String name, int expected) {
+
+        if (expected < names.length && names[expected] == name) {
+            return expected;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+        // the parser does not intern every name ( when its symbol table is full for example )
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
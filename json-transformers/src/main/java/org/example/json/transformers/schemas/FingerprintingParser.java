@@ -0,0 +1,120 @@
+package org.example.json.transformers.schemas;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public final class FingerprintingParser extends JsonParserDelegate {
+
+    /*
+        A parser computing the shape fingerprint ( see ShapeFingerprint ) of the tokens it reads, whoever reads them : the document is
+        decoded, or its schema inferred, and its fingerprint is known in the same pass.
+        The open objects and arrays are kept on a stack of primitive arrays, the sums of ShapeFingerprint.of being computed as
+        their values are read. Skipped children are read token by token, so that they are part of the shape as well.
+     */
+
+    private static final int INITIAL_DEPTH = 8;
+
+    // per open object or array : is it an array, its sum so far, the last element ( arrays ) or the last field name ( objects )
+    private boolean[] arrays = new boolean[INITIAL_DEPTH];
+    private long[] sums = new long[INITIAL_DEPTH];
+    private long[] lasts = new long[INITIAL_DEPTH];
+    private int depth;
+
+    private long fingerprint;
+
+    public FingerprintingParser(JsonParser parser) {
+        super(parser);
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+
+        JsonToken token = delegate.nextToken();
+        if (token == null) {
+            return null;
+        }
+        switch (token) {
+            case START_OBJECT:
+                open(false, ShapeFingerprint.OBJECT);
+                break;
+            case START_ARRAY:
+                open(true, ShapeFingerprint.ARRAY);
+                break;
+            case FIELD_NAME:
+                lasts[depth - 1] = ShapeFingerprint.mix(delegate.currentName().hashCode());
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                value(ShapeFingerprint.mix(sums[depth]));
+                break;
+            default:
+                value(ShapeFingerprint.scalar(delegate));
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+
+        JsonToken token = nextToken();
+        return token == JsonToken.FIELD_NAME ? nextToken() : token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+
+        JsonToken token = currentToken();
+        if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+            return this;
+        }
+        int open = 1;
+        while (open > 0) {
+            token = nextToken();
+            if (token == null) {
+                return this;
+            }
+            if (token.isStructStart()) {
+                open++;
+            } else if (token.isStructEnd()) {
+                open--;
+            }
+        }
+        return this;
+    }
+
+    // the fingerprint of the last complete document read
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    private void open(boolean array, long sum) {
+
+        if (depth == sums.length) {
+            arrays = Arrays.copyOf(arrays, depth * 2);
+            sums = Arrays.copyOf(sums, depth * 2);
+            lasts = Arrays.copyOf(lasts, depth * 2);
+        }
+        arrays[depth] = array;
+        sums[depth] = sum;
+        lasts[depth] = 0;
+        depth++;
+    }
+
+    // a value read in the current object or array, or the whole document
+    private void value(long value) {
+
+        if (depth == 0) {
+            fingerprint = value;
+        } else if (!arrays[depth - 1]) {
+            sums[depth - 1] += ShapeFingerprint.mix(lasts[depth - 1] ^ value);
+        } else if (value != lasts[depth - 1]) {
+            sums[depth - 1] += ShapeFingerprint.mix(value);
+            lasts[depth - 1] = value;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.json.transformers.schemas;
+
+import org.apache.kafka.connect.data.Schema;
+import org.example.transformers.common.CacheStats;
+
+public final class InferredSchemaCache implements CacheStats {
+
+    /*
+        Bounded cache from the shape fingerprint of a json document to the schema inferred for it.
+        When a new shape shows up, its schema is widened with the latest one ( see JsonSchemaInference.widen ) : the schema only grows,
+        and every known shape gets the latest schema, which can hold all of them. While the shapes do not bring anything new,
+        all the documents get the very same Schema instance, which keeps the schema caches of the converters and of the registry hot.
+        Without widening, each shape keeps the schema inferred for it.
+        When the cache is full, the least recently used fingerprint is evicted.
+     */
+
+    private final long[] fingerprints;
+    private final Schema[] schemas;
+    private final long[] lastAccess;
+    private final boolean widen;
+    private int size;
+    private long clock;
+
+    // the widest schema so far, and the schema it was widened from the last time, which may differ from it only
+    // by the fields still never seen but null ( the latest instance is kept as long as the schemas are equal )
+    private Schema latest;
+    private Schema widenedFrom;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long widenings;
+
+    public InferredSchemaCache(int capacity, boolean widen) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Inferred schema cache capacity must be positive: " + capacity);
+        }
+        this.fingerprints = new long[capacity];
+        this.schemas = new Schema[capacity];
+        this.lastAccess = new long[capacity];
+        this.widen = widen;
+    }
+
+    // the schema of this shape, or null when it has never been seen ( or has been evicted )
+    public synchronized Schema get(long fingerprint) {
+
+        clock++;
+        for (int i = 0; i < size; i++) {
+            if (fingerprints[i] == fingerprint) {
+                lastAccess[i] = clock;
+                hits++;
+                if (widen) {
+                    schemas[i] = latest;
+                }
+                return schemas[i];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    // records the schema inferred for a new shape, and returns the schema to use for it
+    public synchronized Schema put(long fingerprint, Schema inferred) {
+
+        Schema schema = inferred;
+        if (widen && latest != null) {
+            Schema widened = JsonSchemaInference.widen(widenedFrom, inferred);
+            widenedFrom = widened;
+            if (widened.equals(latest)) {
+                schema = latest;
+            } else {
+                schema = widened;
+                widenings++;
+            }
+        } else {
+            widenedFrom = inferred;
+        }
+        latest = schema;
+
+        int slot = size < fingerprints.length ? size++ : evict();
+        fingerprints[slot] = fingerprint;
+        schemas[slot] = schema;
+        lastAccess[slot] = clock;
+        return schema;
+    }
+
+    private int evict() {
+
+        int eldest = 0;
+        for (int i = 1; i < size; i++) {
+            if (lastAccess[i] < lastAccess[eldest]) {
+                eldest = i;
+            }
+        }
+        evictions++;
+        return eldest;
+    }
+
+    // the widest schema so far, null before the first document
+    public synchronized Schema latest() {
+        return latest;
+    }
+
+    @Override
+    public synchronized long hits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long widenings() {
+        return widenings;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return fingerprints.length;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.json.transformers.schemas;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.connect.data.ConnectSchema;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+
+import java.io.IOException;
+
+public final class JsonSchemaInference {
+
+    /*
+        Infers a Connect schema from a json value : objects become structs ( fields in the order they are read ), arrays become arrays
+        of the widest type of their elements, integers are int64 and decimals float64.
+        Everything is optional, since any json value can be null or missing from the next document.
+        Widening : int64 and float64 give float64, two structs give the union of their fields, anything else that differs gives a string
+        ( the decoders keep the json text of the value ).
+     */
+
+    // the type of a value that has only been seen null ( or an empty array ) : a string until something else shows up,
+    // equal to the optional string schema but another instance
+    public static final Schema UNKNOWN_SCHEMA = new ConnectSchema(Schema.Type.STRING, true, null, null, null, null);
+
+    private static final Schema BOOLEAN_SCHEMA = Schema.OPTIONAL_BOOLEAN_SCHEMA;
+    private static final Schema INT64_SCHEMA = Schema.OPTIONAL_INT64_SCHEMA;
+    private static final Schema FLOAT64_SCHEMA = Schema.OPTIONAL_FLOAT64_SCHEMA;
+    private static final Schema STRING_SCHEMA = Schema.OPTIONAL_STRING_SCHEMA;
+
+    private JsonSchemaInference() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    // the parser is on the first token of the value, and is left on its last token
+    public static Schema infer(JsonParser parser) throws IOException {
+
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                SchemaBuilder struct = SchemaBuilder.struct().optional();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    Schema schema = infer(parser);
+                    Field field = struct.field(name);
+                    if (field == null) {
+                        struct.field(name, schema);
+                    } else {
+                        // a duplicate key : rebuild the struct with the widened field
+                        struct = withField(struct, name, widen(field.schema(), schema));
+                    }
+                }
+                return struct.build();
+            case START_ARRAY:
+                Schema element = UNKNOWN_SCHEMA;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    element = widen(element, infer(parser));
+                }
+                return SchemaBuilder.array(element).optional().build();
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return BOOLEAN_SCHEMA;
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER ? FLOAT64_SCHEMA : INT64_SCHEMA;
+            case VALUE_NUMBER_FLOAT:
+                return FLOAT64_SCHEMA;
+            case VALUE_NULL:
+                return UNKNOWN_SCHEMA;
+            default:
+                return STRING_SCHEMA;
+        }
+    }
+
+    // the narrowest inferred schema that can hold the values of both
+    public static Schema widen(Schema left, Schema right) {
+
+        if (right == UNKNOWN_SCHEMA || left == right) {
+            return left;
+        }
+        if (left == UNKNOWN_SCHEMA) {
+            return right;
+        }
+        // structs and arrays are widened field by field even when equal, so that a null field seen with a type gets this type
+        Schema.Type leftType = left.type();
+        Schema.Type rightType = right.type();
+        if (leftType == rightType && leftType.isPrimitive()) {
+            return left;
+        }
+        if ((leftType == Schema.Type.INT64 || leftType == Schema.Type.FLOAT64) && (rightType == Schema.Type.INT64 || rightType == Schema.Type.FLOAT64)) {
+            return FLOAT64_SCHEMA;
+        }
+        if (leftType == Schema.Type.ARRAY && rightType == Schema.Type.ARRAY) {
+            return SchemaBuilder.array(widen(left.valueSchema(), right.valueSchema())).optional().build();
+        }
+        if (leftType == Schema.Type.STRUCT && rightType == Schema.Type.STRUCT) {
+            SchemaBuilder struct = SchemaBuilder.struct().optional();
+            for (Field field : left.fields()) {
+                Field other = right.field(field.name());
+                struct.field(field.name(), other == null ? field.schema() : widen(field.schema(), other.schema()));
+            }
+            for (Field field : right.fields()) {
+                if (left.field(field.name()) == null) {
+                    struct.field(field.name(), field.schema());
+                }
+            }
+            return struct.build();
+        }
+        return STRING_SCHEMA;
+    }
+
+    private static SchemaBuilder withField(SchemaBuilder struct, String name, Schema schema) {
+
+        SchemaBuilder updated = SchemaBuilder.struct().optional();
+        for (Field field : struct.fields()) {
+            updated.field(field.name(), field.name().equals(name) ? schema : field.schema());
+        }
+        return updated;
+    }
+}
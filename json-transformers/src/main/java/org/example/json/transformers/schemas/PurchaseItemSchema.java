@@ -1,7 +1,12 @@
 package org.example.json.transformers.schemas;
 
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
+import org.example.json.transformers.aggregators.PriceAggregate;
+
+import java.util.Collections;
+import java.util.List;
 
 public final class PurchaseItemSchema {
 
@@ -17,4 +22,58 @@ public final class PurchaseItemSchema {
             .build();
 
     public static final Schema PURCHASE_ITEM_ARRAY_SCHEMA_FLAT = SchemaBuilder.array(PURCHASE_ITEM_SCHEMA_FLAT).build();
+
+    // the same items as a struct of parallel arrays, one per field : item i is ( item_ids[i], names[i], prices[i] )
+    public static final Schema PURCHASE_ITEM_COLUMNS_SCHEMA = SchemaBuilder.struct()
+            .name("items_columns")
+            .field("item_ids", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+            .field("names", SchemaBuilder.array(Schema.STRING_SCHEMA).build())
+            .field("prices", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+            .build();
+
+    public static final Field ITEM_IDS_FIELD = PURCHASE_ITEM_COLUMNS_SCHEMA.field("item_ids");
+    public static final Field NAMES_FIELD = PURCHASE_ITEM_COLUMNS_SCHEMA.field("names");
+    public static final Field PRICES_FIELD = PURCHASE_ITEM_COLUMNS_SCHEMA.field("prices");
+
+    // the flat item schema followed by one field per aggregate of the merged prices
+    public static Schema mergedItemSchema(PriceAggregate[] aggregates) {
+        return itemSchema(aggregates, Collections.emptyList());
+    }
+
+    // the flat item schema followed by one field per aggregate of the merged prices, then one optional string per catalog column
+    public static Schema itemSchema(PriceAggregate[] aggregates, List<String> catalogFields) {
+
+        if (aggregates.length == 0 && catalogFields.isEmpty()) {
+            return PURCHASE_ITEM_SCHEMA_FLAT;
+        }
+        SchemaBuilder builder = SchemaBuilder.struct()
+                .name("items")
+                .field("item_id", Schema.INT32_SCHEMA)
+                .field("name", Schema.STRING_SCHEMA)
+                .field("price", Schema.INT32_SCHEMA);
+        for (PriceAggregate aggregate : aggregates) {
+            builder.field(aggregate.fieldName(), aggregate.schema());
+        }
+        for (String catalogField : catalogFields) {
+            builder.field(catalogField, Schema.OPTIONAL_STRING_SCHEMA);
+        }
+        return builder.build();
+    }
+
+    // the columns schema followed by one array per aggregate of the merged prices
+    public static Schema mergedColumnsSchema(PriceAggregate[] aggregates) {
+
+        if (aggregates.length == 0) {
+            return PURCHASE_ITEM_COLUMNS_SCHEMA;
+        }
+        SchemaBuilder builder = SchemaBuilder.struct()
+                .name("items_columns")
+                .field("item_ids", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+                .field("names", SchemaBuilder.array(Schema.STRING_SCHEMA).build())
+                .field("prices", SchemaBuilder.array(Schema.INT32_SCHEMA).build());
+        for (PriceAggregate aggregate : aggregates) {
+            builder.field(aggregate.columnName(), SchemaBuilder.array(aggregate.schema()).build());
+        }
+        return builder.build();
+    }
 }
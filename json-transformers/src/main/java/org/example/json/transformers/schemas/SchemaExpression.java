@@ -0,0 +1,164 @@
+package org.example.json.transformers.schemas;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.transforms.util.SchemaUtil;
+
+public final class SchemaExpression {
+
+    /*
+        A Connect schema written as a type expression, so that it fits in the connector configuration :
+            boolean, int8, int16, int32, int64, float32, float64, string, bytes ( base64 in the json )
+            array<type>, map<type> ( the keys are the json object keys ), struct<name:type,name:type,...>
+        A type followed by ? is optional, for example : array<struct<item_id:int32,name:string,price:int32?>>
+     */
+
+    private final String expression;
+    private int position;
+
+    private SchemaExpression(String expression) {
+        this.expression = expression;
+    }
+
+    public static Schema parse(String expression) {
+
+        SchemaExpression parser = new SchemaExpression(expression);
+        Schema schema = parser.type();
+        parser.skipSpaces();
+        if (parser.position != expression.length()) {
+            throw parser.error("Unexpected '" + expression.charAt(parser.position) + "'");
+        }
+        return schema;
+    }
+
+    private Schema type() {
+
+        String name = word();
+        SchemaBuilder builder;
+        switch (name) {
+            case "boolean":
+                builder = SchemaBuilder.bool();
+                break;
+            case "int8":
+                builder = SchemaBuilder.int8();
+                break;
+            case "int16":
+                builder = SchemaBuilder.int16();
+                break;
+            case "int32":
+                builder = SchemaBuilder.int32();
+                break;
+            case "int64":
+                builder = SchemaBuilder.int64();
+                break;
+            case "float32":
+                builder = SchemaBuilder.float32();
+                break;
+            case "float64":
+                builder = SchemaBuilder.float64();
+                break;
+            case "string":
+                builder = SchemaBuilder.string();
+                break;
+            case "bytes":
+                builder = SchemaBuilder.bytes();
+                break;
+            case "array":
+                expect('<');
+                builder = SchemaBuilder.array(type());
+                expect('>');
+                break;
+            case "map":
+                expect('<');
+                builder = SchemaBuilder.map(Schema.STRING_SCHEMA, type());
+                expect('>');
+                break;
+            case "struct":
+                builder = SchemaBuilder.struct();
+                expect('<');
+                do {
+                    String fieldName = word();
+                    expect(':');
+                    if (builder.field(fieldName) != null) {
+                        throw error("Duplicate field " + fieldName);
+                    }
+                    builder.field(fieldName, type());
+                } while (accept(','));
+                expect('>');
+                break;
+            default:
+                throw error("Unknown type '" + name + "'");
+        }
+        if (accept('?')) {
+            builder.optional();
+        }
+        return builder.build();
+    }
+
+    // a type or a field name : everything up to the next separator
+    private String word() {
+
+        skipSpaces();
+        int start = position;
+        while (position < expression.length() && "<>,:? \t\n".indexOf(expression.charAt(position)) < 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Expected a name");
+        }
+        return expression.substring(start, position);
+    }
+
+    private boolean accept(char c) {
+
+        skipSpaces();
+        if (position < expression.length() && expression.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of the schema " + expression);
+    }
+
+    // the same schema, optional
+    public static Schema optional(Schema schema) {
+
+        if (schema.isOptional()) {
+            return schema;
+        }
+        SchemaBuilder builder;
+        switch (schema.type()) {
+            case ARRAY:
+                builder = SchemaBuilder.array(schema.valueSchema());
+                break;
+            case MAP:
+                builder = SchemaBuilder.map(schema.keySchema(), schema.valueSchema());
+                break;
+            default:
+                builder = new SchemaBuilder(schema.type());
+        }
+        SchemaUtil.copySchemaBasics(schema, builder);
+        if (schema.type() == Schema.Type.STRUCT) {
+            for (Field field : schema.fields()) {
+                builder.field(field.name(), field.schema());
+            }
+        }
+        return builder.optional().build();
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.json.transformers.schemas;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+public final class ShapeFingerprint {
+
+    /*
+        A 64 bits hash of the shape of a json document : the keys of its objects and the kind of their values, not the values.
+        Two documents with the same fingerprint have the same inferred schema, so the schema is only inferred for a new shape.
+        The keys of an object are combined in any order ( a sum ), and in an array an element of the same shape as the previous one
+        is not counted again : an array of 2 items and an array of 1000 items of the same shape have the same fingerprint.
+        Reading the shape only walks the tokens, no value is decoded ( field names are interned, their hash code is cached ).
+        FingerprintingParser computes the same fingerprint from the tokens read by someone else, a decoder for example.
+     */
+
+    static final long OBJECT = 0x2545F4914F6CDD1DL;
+    static final long ARRAY = 0x9E3779B97F4A7C15L;
+    private static final long STRING = 1;
+    private static final long INTEGER = 2;
+    private static final long DECIMAL = 3;
+    private static final long BOOLEAN = 4;
+    private static final long NULL = 5;
+
+    // longer integers may not fit in an int64, they are inferred as float64
+    private static final int MAX_INT64_DIGITS = 18;
+
+    private ShapeFingerprint() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    // the parser is on the first token of the value, and is left on its last token
+    public static long of(JsonParser parser) throws IOException {
+
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                long object = OBJECT;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    long name = mix(parser.currentName().hashCode());
+                    parser.nextToken();
+                    object += mix(name ^ of(parser));
+                }
+                return mix(object);
+            case START_ARRAY:
+                long array = ARRAY;
+                long previous = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    long element = of(parser);
+                    if (element != previous) {
+                        array += mix(element);
+                        previous = element;
+                    }
+                }
+                return mix(array);
+            default:
+                return scalar(parser);
+        }
+    }
+
+    // the parser is on a scalar value
+    static long scalar(JsonParser parser) throws IOException {
+
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+                if (parser.getTextLength() > MAX_INT64_DIGITS && parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    return DECIMAL;
+                }
+                return INTEGER;
+            case VALUE_NUMBER_FLOAT:
+                return DECIMAL;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return BOOLEAN;
+            case VALUE_NULL:
+                return NULL;
+            default:
+                return STRING;
+        }
+    }
+
+    // the finalizer of SplitMix64
+    static long mix(long value) {
+
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.json.transformers;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.transformers.common.AllocationBudgets;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+@EnabledIfSystemProperty(named = AllocationBudgets.PROPERTY, matches = AllocationBudgets.ENABLED)
+class AllocationBudgetTest {
+
+    /*
+        Every transformer of this module, Key and Value variants, with and without schema, on records of 8 and 32 scalar fields
+        ( int32, int64, string and float64 in turn ) followed by a purchased_items field holding a json array of 10 or 100 purchases.
+        Users buy the same items again : an array of n purchases holds about n / 4 distinct items.
+        The key and the value are the same struct ( or map ).
+        The options changing the decoding path of the purchase transformers are measured on the value, with 8 fields : the json in a
+        bytes field ( .bytes ), the columns layout ( .columns ) and the catalog enrichment ( .catalog, every item being in the catalog ).
+     */
+
+    private static final String ITEMS_FIELD = "purchased_items";
+
+    private static final Schema[] FIELD_SCHEMAS = {
+            Schema.INT32_SCHEMA, Schema.INT64_SCHEMA, Schema.STRING_SCHEMA, Schema.FLOAT64_SCHEMA
+    };
+
+    private static final String[] CATALOG = {"Laptop", "Smartphone", "Headphones", "Keyboard", "Mouse", "Monitor", "Webcam", "Microphone"};
+
+    private static final int MAX_ITEM_ID = 100_000;
+
+    private static AllocationBudgets budgets;
+
+    @TempDir
+    static Path directory;
+
+    private static Path catalog;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+
+        budgets = new AllocationBudgets();
+        catalog = directory.resolve("catalog.csv");
+        try (Writer writer = Files.newBufferedWriter(catalog, StandardCharsets.UTF_8)) {
+            writer.write("item_id,category\n");
+            for (int itemId = 1; itemId <= MAX_ITEM_ID; itemId++) {
+                writer.write(itemId + ",c" + itemId % 32 + "\n");
+            }
+        }
+    }
+
+    @AfterAll
+    static void writeBudgets() throws IOException {
+        budgets.writeIfUpdating();
+    }
+
+    static Stream<Arguments> shapes() {
+
+        List<Arguments> shapes = new ArrayList<>();
+        for (String transformer : new String[]{"purchase-item-to-array", "merged-purchase-item-to-array", "json-to-struct"}) {
+            for (String side : new String[]{"key", "value"}) {
+                for (boolean withSchema : new boolean[]{true, false}) {
+                    for (int width : new int[]{8, 32}) {
+                        for (int items : new int[]{10, 100}) {
+                            String shape = transformer + "." + side + "." + (withSchema ? "schema" : "schemaless") + ".width" + width + ".items" + items;
+                            shapes.add(Arguments.of(shape, transformer, "", side.equals("key"), withSchema, width, items));
+                        }
+                    }
+                }
+            }
+        }
+        for (String transformer : new String[]{"purchase-item-to-array", "merged-purchase-item-to-array"}) {
+            for (String variant : new String[]{"bytes", "columns", "catalog"}) {
+                for (boolean withSchema : new boolean[]{true, false}) {
+                    for (int items : new int[]{10, 100}) {
+                        String shape = transformer + ".value." + (withSchema ? "schema" : "schemaless") + ".width8.items" + items + "." + variant;
+                        shapes.add(Arguments.of(shape, transformer, variant, false, withSchema, 8, items));
+                    }
+                }
+            }
+        }
+        return shapes.stream();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("shapes")
+    void staysWithinItsBudget(String shape, String transformer, String variant, boolean key, boolean withSchema, int width, int items) {
+
+        Transformation<SourceRecord> transformation = create(transformer, key);
+        try {
+            transformation.configure(config(variant));
+            budgets.check(shape, transformation, record(withSchema, width, items, variant.equals("bytes")));
+        } finally {
+            transformation.close();
+        }
+    }
+
+    private static Transformation<SourceRecord> create(String transformer, boolean key) {
+
+        if (transformer.equals("purchase-item-to-array")) {
+            return key ? new PurchaseItemToArray.Key<>() : new PurchaseItemToArray.Value<>();
+        }
+        if (transformer.equals("json-to-struct")) {
+            return key ? new JsonToStruct.Key<>() : new JsonToStruct.Value<>();
+        }
+        return key ? new MergedPurchaseItemToArray.Key<>() : new MergedPurchaseItemToArray.Value<>();
+    }
+
+    // the json field ( "field" for the three transformers ) and the option of the variant
+    private static Map<String, String> config(String variant) {
+
+        Map<String, String> config = new HashMap<>(Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, ITEMS_FIELD));
+        if (variant.equals("columns")) {
+            config.put(PurchaseItemToArray.LAYOUT_CONFIG, "columns");
+        } else if (variant.equals("catalog")) {
+            config.put(PurchaseItemToArray.CATALOG_PATH_CONFIG, catalog.toString());
+            config.put(PurchaseItemToArray.CATALOG_RELOAD_MS_CONFIG, "0");
+        }
+        return config;
+    }
+
+    private static SourceRecord record(boolean withSchema, int width, int items, boolean bytes) {
+
+        Random random = new Random(42);
+        SchemaBuilder builder = SchemaBuilder.struct().name("SyntheticRecord");
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < width; i++) {
+            Schema fieldSchema = FIELD_SCHEMAS[i % FIELD_SCHEMAS.length];
+            builder.field("f" + i, fieldSchema);
+            values.put("f" + i, value(fieldSchema, random));
+        }
+        String json = items(items, random);
+        builder.field(ITEMS_FIELD, bytes ? Schema.BYTES_SCHEMA : Schema.STRING_SCHEMA);
+        values.put(ITEMS_FIELD, bytes ? json.getBytes(StandardCharsets.UTF_8) : json);
+
+        if (!withSchema) {
+            return new SourceRecord(null, null, "synthetic", 0, null, values, null, new HashMap<>(values));
+        }
+        Schema schema = builder.build();
+        Struct value = new Struct(schema);
+        values.forEach(value::put);
+        return new SourceRecord(null, null, "synthetic", 0, schema, value, schema, value);
+    }
+
+    private static String items(int purchases, Random random) {
+
+        int distinctItems = Math.max(1, purchases / 4);
+        int[] itemIds = new int[distinctItems];
+        for (int i = 0; i < distinctItems; i++) {
+            itemIds[i] = 1 + random.nextInt(MAX_ITEM_ID);
+        }
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < purchases; i++) {
+            int itemId = itemIds[random.nextInt(distinctItems)];
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"item_id\":").append(itemId)
+                    .append(",\"name\":\"").append(CATALOG[itemId % CATALOG.length])
+                    .append("\",\"price\":").append(5 + itemId % 1000).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static Object value(Schema schema, Random random) {
+
+        switch (schema.type()) {
+            case INT32:
+                return random.nextInt();
+            case INT64:
+                return random.nextLong();
+            case STRING:
+                return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            default:
+                return random.nextDouble() * 1000;
+        }
+    }
+}
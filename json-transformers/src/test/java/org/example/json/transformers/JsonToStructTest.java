@@ -0,0 +1,210 @@
+package org.example.json.transformers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.example.json.transformers.converters.InputFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonToStructTest {
+
+    private static final Schema EVENT = SchemaBuilder.struct().name("Event")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("payload", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+
+    private JsonToStruct<SourceRecord> transformation;
+
+    @AfterEach
+    void close() {
+        transformation.close();
+    }
+
+    private void configure(String... pairs) {
+
+        Map<String, String> config = new HashMap<>(Map.of(JsonToStruct.JSON_FIELD_CONFIG, "payload"));
+        for (int i = 0; i < pairs.length; i += 2) {
+            config.put(pairs[i], pairs[i + 1]);
+        }
+        if (transformation != null) {
+            transformation.close();
+        }
+        transformation = new JsonToStruct.Value<>();
+        transformation.configure(config);
+    }
+
+    private static SourceRecord event(String payload) {
+        return new SourceRecord(null, null, "events", 0, EVENT, new Struct(EVENT).put("id", 1).put("payload", payload));
+    }
+
+    private Struct payload(String json) {
+        return ((Struct) transformation.apply(event(json)).value()).getStruct("payload");
+    }
+
+    // the same json in a binary format
+    private static byte[] encoded(String json, InputFormat format) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonParser parser = InputFormat.JSON.factory().createParser(json);
+             JsonGenerator generator = format.factory().createGenerator(bytes)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void decodesWithTheDeclaredSchema() {
+
+        configure(JsonToStruct.SCHEMA_CONFIG, "struct<id:int32,tags:array<string>,score:float64?>");
+        Struct payload = payload("{\"id\":7,\"tags\":[\"a\",\"b\"],\"unknown\":{\"x\":1}}");
+
+        assertEquals(7, payload.get("id"));
+        assertEquals(List.of("a", "b"), payload.get("tags"));
+        assertNull(payload.get("score"));
+    }
+
+    @Test
+    void infersTheSchemaOfTheDocument() {
+
+        configure();
+        Struct payload = payload("{\"count\":3,\"rate\":1.5,\"name\":\"x\",\"ok\":true,\"items\":[{\"id\":1}]}");
+        Schema schema = payload.schema();
+
+        assertEquals(Schema.OPTIONAL_INT64_SCHEMA, schema.field("count").schema());
+        assertEquals(Schema.OPTIONAL_FLOAT64_SCHEMA, schema.field("rate").schema());
+        assertEquals(Schema.OPTIONAL_STRING_SCHEMA, schema.field("name").schema());
+        assertEquals(Schema.OPTIONAL_BOOLEAN_SCHEMA, schema.field("ok").schema());
+        assertEquals(3L, payload.get("count"));
+        assertEquals(1L, payload.<Struct>getArray("items").get(0).get("id"));
+    }
+
+    @Test
+    void widensTheSchemaWithEachNewShape() {
+
+        configure();
+        Struct first = payload("{\"a\":1}");
+        Struct second = payload("{\"a\":1.5,\"b\":\"x\"}");
+        Struct third = payload("{\"a\":2}");
+
+        assertEquals(Schema.OPTIONAL_FLOAT64_SCHEMA, second.schema().field("a").schema());
+        assertEquals("x", second.get("b"));
+        // a known shape gets the widest schema, the very same instance
+        assertSame(second.schema(), third.schema());
+        assertEquals(2.0, third.get("a"));
+        assertNull(third.get("b"));
+        assertEquals(1L, first.get("a"));
+        assertEquals(1, transformation.inferredSchemas().widenings());
+    }
+
+    @Test
+    void keepsOneSchemaPerShapeWithoutWidening() {
+
+        configure(JsonToStruct.INFERENCE_WIDEN_CONFIG, "false");
+        // the shapes alternate : each document is first decoded with the schema of the previous one
+        for (int i = 0; i < 3; i++) {
+            Struct integer = payload("{\"a\":" + i + "}");
+            Struct text = payload("{\"a\":\"" + i + "\"}");
+
+            assertEquals((long) i, integer.get("a"));
+            assertEquals(String.valueOf(i), text.get("a"));
+            assertNotSame(integer.schema(), text.schema());
+        }
+        assertEquals(2, transformation.inferredSchemas().size());
+        assertEquals(4, transformation.inferredSchemas().hits());
+        assertEquals(2, transformation.inferredSchemas().misses());
+    }
+
+    @Test
+    void keepsTheNewFieldsOfADocumentReadWithAnOlderSchema() {
+
+        configure();
+        payload("{\"a\":1}");
+        // decodes with the schema of the first document, but the shape is new
+        Struct payload = payload("{\"a\":1,\"b\":{\"c\":true}}");
+
+        assertEquals(true, payload.getStruct("b").get("c"));
+    }
+
+    @Test
+    void decodesANullJsonWithTheLatestSchema() {
+
+        configure();
+        Struct decoded = payload("{\"a\":1}");
+        SourceRecord record = transformation.apply(event(null));
+
+        assertNull(((Struct) record.value()).get("payload"));
+        assertSame(decoded.schema(), record.valueSchema().field("payload").schema());
+    }
+
+    @Test
+    void givesABrokenJsonBackUntouched() {
+
+        configure();
+        payload("{\"a\":1}");
+        SourceRecord broken = event("{\"a\":1");
+        SourceRecord trailing = event("{\"a\":1} {\"a\":2}");
+
+        assertSame(broken, transformation.apply(broken));
+        assertSame(trailing, transformation.apply(trailing));
+        // and the next documents are still decoded
+        assertEquals(3L, payload("{\"a\":3}").get("a"));
+    }
+
+    @Test
+    void decodesASchemalessRecord() {
+
+        configure();
+        Map<String, Object> event = new HashMap<>(Map.of("id", 1, "payload", "[1,2,3]"));
+        Map<?, ?> value = (Map<?, ?>) transformation.apply(new SourceRecord(null, null, "events", 0, null, event)).value();
+
+        assertEquals(List.of(1L, 2L, 3L), value.get("payload"));
+        assertEquals(1, value.get("id"));
+    }
+
+    @Test
+    void decodesABinaryJson() throws IOException {
+
+        String json = "{\"id\":7,\"tags\":[\"a\",\"b\"],\"score\":1.5,\"ok\":true}";
+        configure();
+        Struct expected = payload(json);
+        Schema binaryEvent = SchemaBuilder.struct().name("Event")
+                .field("id", Schema.INT32_SCHEMA)
+                .field("payload", Schema.OPTIONAL_BYTES_SCHEMA)
+                .build();
+
+        for (InputFormat format : new InputFormat[]{InputFormat.SMILE, InputFormat.CBOR}) {
+            configure(JsonToStruct.FORMAT_CONFIG, format.name().toLowerCase(Locale.ROOT));
+            Struct event = new Struct(binaryEvent).put("id", 1).put("payload", encoded(json, format));
+            Struct payload = ((Struct) transformation.apply(new SourceRecord(null, null, "events", 0, binaryEvent, event)).value()).getStruct("payload");
+
+            assertEquals(expected, payload, format.name());
+
+            Map<String, Object> schemaless = new HashMap<>(Map.of("id", 1, "payload", encoded(json, format)));
+            Object schemalessPayload = ((Map<?, ?>) transformation.apply(new SourceRecord(null, null, "events", 0, null, schemaless)).value()).get("payload");
+            assertEquals(expected, schemalessPayload, format.name());
+
+            // a binary json is only read from bytes
+            assertThrows(DataException.class, () -> transformation.apply(event(json)), format.name());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.json.transformers;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.json.transformers.converters.ParallelItemDecoder;
+import org.example.transformers.common.TransformMetrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergedPurchaseItemToArrayTest {
+
+    private static final Schema PURCHASE = SchemaBuilder.struct().name("Purchase")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("purchased_items", Schema.STRING_SCHEMA)
+            .build();
+
+    private static final String ITEMS = "[{\"item_id\":7,\"name\":\"Laptop\",\"price\":1200},"
+            + "{\"item_id\":3,\"name\":\"Mouse\",\"price\":25},"
+            + "{\"item_id\":7,\"name\":\"Laptop (refurbished)\",\"price\":900},"
+            + "{\"item_id\":5,\"name\":\"Keyboard\",\"price\":80},"
+            + "{\"item_id\":3,\"name\":\"Mouse\",\"price\":35}]";
+
+    private static SourceRecord purchase(String items) {
+        return new SourceRecord(null, null, "purchases", 0, PURCHASE, new Struct(PURCHASE).put("id", 1).put("purchased_items", items));
+    }
+
+    private static SourceRecord merged(SourceRecord record, String... pairs) {
+
+        Map<String, String> config = new HashMap<>(Map.of(MergedPurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items"));
+        for (int i = 0; i < pairs.length; i += 2) {
+            config.put(pairs[i], pairs[i + 1]);
+        }
+        Transformation<SourceRecord> transformation = new MergedPurchaseItemToArray.Value<>();
+        transformation.configure(config);
+        try {
+            return transformation.apply(record);
+        } finally {
+            transformation.close();
+        }
+    }
+
+    private static List<Object> itemIds(List<Struct> items) {
+        return items.stream().map(item -> item.get("item_id")).collect(Collectors.toList());
+    }
+
+    @Test
+    void mergesTheItemsInTheOrderTheyAreFirstSeen() {
+
+        Struct value = (Struct) merged(purchase(ITEMS)).value();
+        List<Struct> items = value.getArray("purchased_items");
+
+        assertEquals(List.of(7, 3, 5), itemIds(items));
+        assertEquals("Laptop", items.get(0).get("name"));
+        assertEquals(2100, items.get(0).get("price"));
+        assertEquals(60, items.get(1).get("price"));
+        assertEquals(1, value.get("id"));
+    }
+
+    @Test
+    void addsTheAggregatesOfTheMergedPrices() {
+
+        SourceRecord merged = merged(purchase(ITEMS), MergedPurchaseItemToArray.AGGREGATES_CONFIG, "count,min,max,avg");
+        Struct laptop = ((Struct) merged.value()).<Struct>getArray("purchased_items").get(0);
+
+        assertEquals(2, laptop.get("price_count"));
+        assertEquals(900, laptop.get("price_min"));
+        assertEquals(1200, laptop.get("price_max"));
+        assertEquals(1050.0, laptop.get("price_avg"));
+        assertNull(laptop.schema().field("price_sum"));
+    }
+
+    @Test
+    void givesTheMergedItemsAsColumns() {
+
+        SourceRecord merged = merged(purchase(ITEMS), MergedPurchaseItemToArray.LAYOUT_CONFIG, "columns",
+                MergedPurchaseItemToArray.AGGREGATES_CONFIG, "max", MergedPurchaseItemToArray.TOP_ITEMS_CONFIG, "1");
+        Struct value = (Struct) merged.value();
+        Struct columns = value.getStruct("purchased_items");
+
+        assertEquals(List.of(7, 3, 5), columns.getArray("item_ids"));
+        assertEquals(List.of("Laptop", "Mouse", "Keyboard"), columns.getArray("names"));
+        assertEquals(List.of(2100, 60, 80), columns.getArray("prices"));
+        assertEquals(List.of(1200, 35, 80), columns.getArray("price_maxs"));
+        assertEquals(List.of(7), itemIds(value.getArray("top_items")));
+    }
+
+    @Test
+    void addsTheSummaryOfThePurchase() {
+
+        SourceRecord merged = merged(purchase(ITEMS), MergedPurchaseItemToArray.SUMMARY_CONFIG, "total_spend,item_count,distinct_items");
+        Struct value = (Struct) merged.value();
+
+        assertEquals(2240L, value.get("total_spend"));
+        assertEquals(5, value.get("item_count"));
+        assertEquals(3, value.get("distinct_items"));
+        assertEquals(Schema.OPTIONAL_INT64_SCHEMA, merged.valueSchema().field("total_spend").schema());
+    }
+
+    @Test
+    void addsTheTopItemsByMergedPrice() {
+
+        String tied = "[{\"item_id\":1,\"name\":\"a\",\"price\":10},{\"item_id\":2,\"name\":\"b\",\"price\":30},"
+                + "{\"item_id\":3,\"name\":\"c\",\"price\":30},{\"item_id\":1,\"name\":\"a\",\"price\":25}]";
+
+        // 1 merges to 35, then 2 and 3 tie at 30 : the first seen wins
+        Struct value = (Struct) merged(purchase(tied), MergedPurchaseItemToArray.TOP_ITEMS_CONFIG, "2").value();
+        assertEquals(List.of(1, 2), itemIds(value.getArray("top_items")));
+        // the top items are the merged items themselves
+        assertEquals(value.<Struct>getArray("purchased_items").get(0), value.<Struct>getArray("top_items").get(0));
+
+        Struct all = (Struct) merged(purchase(tied), MergedPurchaseItemToArray.TOP_ITEMS_CONFIG, "10").value();
+        assertEquals(List.of(1, 2, 3), itemIds(all.getArray("top_items")));
+    }
+
+    @Test
+    void mergesASchemalessRecord() {
+
+        Map<String, Object> purchase = new HashMap<>(Map.of("id", 1, "purchased_items", ITEMS));
+        SourceRecord merged = merged(new SourceRecord(null, null, "purchases", 0, null, purchase),
+                MergedPurchaseItemToArray.SUMMARY_CONFIG, "distinct_items");
+        Map<?, ?> value = (Map<?, ?>) merged.value();
+
+        assertEquals(List.of(7, 3, 5), itemIds((List<Struct>) value.get("purchased_items")));
+        assertEquals(3, value.get("distinct_items"));
+        assertEquals(1, value.get("id"));
+    }
+
+    @Test
+    void givesNullItemsAndSummaryForANullJson() {
+
+        Map<String, Object> purchase = new HashMap<>();
+        purchase.put("id", 1);
+        purchase.put("purchased_items", null);
+        SourceRecord merged = merged(new SourceRecord(null, null, "purchases", 0, null, purchase),
+                MergedPurchaseItemToArray.SUMMARY_CONFIG, "total_spend", MergedPurchaseItemToArray.TOP_ITEMS_CONFIG, "3");
+        Map<?, ?> value = (Map<?, ?>) merged.value();
+
+        assertNull(value.get("purchased_items"));
+        assertNull(value.get("total_spend"));
+        assertNull(value.get("top_items"));
+        assertEquals(4, value.size());
+    }
+
+    @Test
+    void failsWhenTheRecordAlreadyHasASummaryField() {
+
+        Schema schema = SchemaBuilder.struct().name("Purchase")
+                .field("purchased_items", Schema.STRING_SCHEMA)
+                .field("item_count", Schema.INT32_SCHEMA)
+                .build();
+        SourceRecord record = new SourceRecord(null, null, "purchases", 0, schema, new Struct(schema).put("purchased_items", ITEMS).put("item_count", 5));
+
+        assertThrows(DataException.class, () -> merged(record, MergedPurchaseItemToArray.SUMMARY_CONFIG, "item_count"));
+    }
+
+    @Test
+    void startsTheDecodingPoolOnlyWithAThreshold() {
+
+        Transformation<SourceRecord> sequential = new MergedPurchaseItemToArray.Value<>();
+        sequential.configure(Map.of(MergedPurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items"));
+        assertEquals(0, ParallelItemDecoder.parallelism());
+        sequential.close();
+
+        Transformation<SourceRecord> parallel = new MergedPurchaseItemToArray.Value<>();
+        parallel.configure(Map.of(MergedPurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items", MergedPurchaseItemToArray.PARALLEL_THRESHOLD_CONFIG, "1"));
+        try {
+            assertTrue(ParallelItemDecoder.parallelism() > 0);
+            Struct value = (Struct) parallel.apply(purchase(ITEMS)).value();
+            assertEquals(List.of(7, 3, 5), itemIds(value.getArray("purchased_items")));
+        } finally {
+            parallel.close();
+            // closed twice, released once
+            parallel.close();
+        }
+        assertEquals(0, ParallelItemDecoder.parallelism());
+    }
+
+    @Test
+    void givesTheMetricsBackWhenTheConfigurationIsRefused() throws MalformedObjectNameException {
+
+        Map<String, String> columns = Map.of(MergedPurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items",
+                TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, "refused",
+                MergedPurchaseItemToArray.LAYOUT_CONFIG, "columns", MergedPurchaseItemToArray.CATALOG_PATH_CONFIG, "catalog.csv");
+        Map<String, String> missingCatalog = Map.of(MergedPurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items",
+                TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, "refused",
+                MergedPurchaseItemToArray.CATALOG_PATH_CONFIG, "missing/catalog.csv");
+
+        assertThrows(ConfigException.class, () -> new MergedPurchaseItemToArray.Value<SourceRecord>().configure(columns));
+        assertThrows(ConfigException.class, () -> new MergedPurchaseItemToArray.Value<SourceRecord>().configure(missingCatalog));
+
+        ObjectName refused = new ObjectName("kconnect.samples:type=transform-metrics,connector=refused,*");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(refused, null).isEmpty());
+    }
+}
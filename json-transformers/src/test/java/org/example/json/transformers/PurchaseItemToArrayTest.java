@@ -0,0 +1,205 @@
+package org.example.json.transformers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.example.json.transformers.converters.InputFormat;
+import org.example.json.transformers.schemas.PurchaseItemSchema;
+import org.example.transformers.common.TransformMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurchaseItemToArrayTest {
+
+    private static final Schema PURCHASE = SchemaBuilder.struct().name("Purchase")
+            .field("id", Schema.INT32_SCHEMA)
+            .field("purchased_items", Schema.STRING_SCHEMA)
+            .build();
+
+    private Transformation<SourceRecord> transformation;
+
+    @BeforeEach
+    void configure() {
+        transformation = new PurchaseItemToArray.Value<>();
+        transformation.configure(Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items"));
+    }
+
+    @AfterEach
+    void close() {
+        transformation.close();
+    }
+
+    private static SourceRecord purchase(String items) {
+        return new SourceRecord(null, null, "purchases", 0, PURCHASE, new Struct(PURCHASE).put("id", 1).put("purchased_items", items));
+    }
+
+    // the same json in a binary format
+    private static byte[] encoded(String json, InputFormat format) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonParser parser = InputFormat.JSON.factory().createParser(json);
+             JsonGenerator generator = format.factory().createGenerator(bytes)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void replacesTheJsonWithTheItems() {
+
+        SourceRecord transformed = transformation.apply(purchase("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},{\"item_id\":2,\"name\":\"Mouse\",\"price\":25}]"));
+
+        List<Struct> items = ((Struct) transformed.value()).getArray("purchased_items");
+        assertEquals(2, items.size());
+        assertEquals("Mouse", items.get(1).get("name"));
+        assertEquals(1, ((Struct) transformed.value()).get("id"));
+
+        Map<String, Object> schemaless = new HashMap<>(Map.of("id", 1, "purchased_items", "[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200}]"));
+        Object schemalessItems = ((Map<?, ?>) transformation.apply(new SourceRecord(null, null, "purchases", 0, null, schemaless)).value()).get("purchased_items");
+        assertEquals(1, ((List<?>) schemalessItems).size());
+    }
+
+    @Test
+    void givesABrokenJsonBackUntouched() {
+
+        SourceRecord broken = purchase("[{\"item_id\":1,\"name\":\"Laptop\"");
+
+        assertSame(broken, transformation.apply(broken));
+    }
+
+    @Test
+    void givesAnItemWithAWrongValueBackUntouched() {
+
+        SourceRecord stringPrice = purchase("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":\"12\"}]");
+        SourceRecord objectName = purchase("[{\"item_id\":1,\"name\":{\"en\":\"Laptop\"},\"price\":1200}]");
+
+        assertSame(stringPrice, transformation.apply(stringPrice));
+        assertSame(objectName, transformation.apply(objectName));
+    }
+
+    @Test
+    void addsTheCatalogColumnsToTheItems(@TempDir Path directory) throws IOException {
+
+        Path catalog = Files.writeString(directory.resolve("catalog.csv"), "item_id,category,sku\n1,computers,C-0001\n");
+        Transformation<SourceRecord> enriching = new PurchaseItemToArray.Value<>();
+        enriching.configure(Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items",
+                PurchaseItemToArray.CATALOG_PATH_CONFIG, catalog.toString(), PurchaseItemToArray.CATALOG_FIELDS_CONFIG, "category"));
+        try {
+            SourceRecord transformed = enriching.apply(purchase("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},{\"item_id\":2,\"name\":\"Mouse\",\"price\":25}]"));
+            List<Struct> items = ((Struct) transformed.value()).getArray("purchased_items");
+
+            assertEquals("computers", items.get(0).get("category"));
+            assertNull(items.get(1).get("category"));
+            assertNull(items.get(0).schema().field("sku"));
+        } finally {
+            enriching.close();
+        }
+    }
+
+    @Test
+    void givesTheMetricsBackWhenTheConfigurationIsRefused() throws MalformedObjectNameException {
+
+        Map<String, String> columns = Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items",
+                TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, "refused",
+                PurchaseItemToArray.LAYOUT_CONFIG, "columns", PurchaseItemToArray.CATALOG_PATH_CONFIG, "catalog.csv");
+        Map<String, String> missingCatalog = Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items",
+                TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, "refused",
+                PurchaseItemToArray.CATALOG_PATH_CONFIG, "missing/catalog.csv");
+
+        assertThrows(ConfigException.class, () -> new PurchaseItemToArray.Value<SourceRecord>().configure(columns));
+        assertThrows(ConfigException.class, () -> new PurchaseItemToArray.Value<SourceRecord>().configure(missingCatalog));
+
+        ObjectName refused = new ObjectName("kconnect.samples:type=transform-metrics,connector=refused,*");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(refused, null).isEmpty());
+    }
+
+    @Test
+    void decodesTheItemsOfABinaryJson() throws IOException {
+
+        String json = "[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},{\"item_id\":2,\"name\":\"Mouse\",\"price\":25}]";
+        List<Struct> expected = ((Struct) transformation.apply(purchase(json)).value()).getArray("purchased_items");
+        Schema binaryPurchase = SchemaBuilder.struct().name("Purchase")
+                .field("id", Schema.INT32_SCHEMA)
+                .field("purchased_items", Schema.BYTES_SCHEMA)
+                .build();
+
+        for (InputFormat format : new InputFormat[]{InputFormat.SMILE, InputFormat.CBOR}) {
+            Transformation<SourceRecord> binary = new PurchaseItemToArray.Value<>();
+            binary.configure(Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items", PurchaseItemToArray.FORMAT_CONFIG, format.name().toLowerCase(Locale.ROOT)));
+            try {
+                Struct purchase = new Struct(binaryPurchase).put("id", 1).put("purchased_items", encoded(json, format));
+                SourceRecord transformed = binary.apply(new SourceRecord(null, null, "purchases", 0, binaryPurchase, purchase));
+
+                assertEquals(expected, ((Struct) transformed.value()).getArray("purchased_items"), format.name());
+
+                Map<String, Object> schemaless = new HashMap<>(Map.of("id", 1, "purchased_items", encoded(json, format)));
+                Object schemalessItems = ((Map<?, ?>) binary.apply(new SourceRecord(null, null, "purchases", 0, null, schemaless)).value()).get("purchased_items");
+                assertEquals(expected, schemalessItems, format.name());
+
+                // a binary json is only read from bytes
+                assertThrows(DataException.class, () -> binary.apply(purchase(json)), format.name());
+            } finally {
+                binary.close();
+            }
+        }
+    }
+
+    @Test
+    void givesTheItemsAsColumns() {
+
+        Transformation<SourceRecord> columns = new PurchaseItemToArray.Value<>();
+        columns.configure(Map.of(PurchaseItemToArray.JSON_FIELD_CONFIG, "purchased_items", PurchaseItemToArray.LAYOUT_CONFIG, "columns"));
+        try {
+            SourceRecord transformed = columns.apply(purchase("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},{\"item_id\":2,\"name\":\"Mouse\",\"price\":25}]"));
+            Struct items = ((Struct) transformed.value()).getStruct("purchased_items");
+
+            assertEquals(PurchaseItemSchema.PURCHASE_ITEM_COLUMNS_SCHEMA, transformed.valueSchema().field("purchased_items").schema());
+            assertEquals(Schema.INT32_SCHEMA, transformed.valueSchema().field("id").schema());
+            assertEquals(List.of(1, 2), items.getArray("item_ids"));
+            assertEquals(List.of("Laptop", "Mouse"), items.getArray("names"));
+            assertEquals(List.of(1200, 25), items.getArray("prices"));
+
+            Struct empty = ((Struct) columns.apply(purchase("[]")).value()).getStruct("purchased_items");
+            assertEquals(List.of(), empty.getArray("item_ids"));
+            assertEquals(List.of(), empty.getArray("names"));
+            assertEquals(List.of(), empty.getArray("prices"));
+
+            Map<String, Object> schemaless = new HashMap<>(Map.of("id", 1, "purchased_items", "[{\"item_id\":3,\"name\":\"Keyboard\",\"price\":80}]"));
+            Struct schemalessItems = (Struct) ((Map<?, ?>) columns.apply(new SourceRecord(null, null, "purchases", 0, null, schemaless)).value()).get("purchased_items");
+            assertEquals(PurchaseItemSchema.PURCHASE_ITEM_COLUMNS_SCHEMA, schemalessItems.schema());
+            assertEquals(List.of(3), schemalessItems.getArray("item_ids"));
+            assertEquals(List.of("Keyboard"), schemalessItems.getArray("names"));
+            assertEquals(List.of(80), schemalessItems.getArray("prices"));
+        } finally {
+            columns.close();
+        }
+    }
+}
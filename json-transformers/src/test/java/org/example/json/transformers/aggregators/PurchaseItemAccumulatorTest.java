@@ -0,0 +1,118 @@
+package org.example.json.transformers.aggregators;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.example.json.transformers.schemas.PurchaseItemSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PurchaseItemAccumulatorTest {
+
+    private static final PriceAggregate[] ALL = PriceAggregate.values();
+
+    private static final Schema ITEM_SCHEMA = PurchaseItemSchema.itemSchema(ALL, List.of());
+
+    private static PurchaseItemAccumulator purchase() {
+
+        PurchaseItemAccumulator accumulator = new PurchaseItemAccumulator(2);
+        accumulator.add(7, "Laptop", 1200);
+        accumulator.add(3, "Mouse", 25);
+        accumulator.add(7, "Laptop (refurbished)", 900);
+        accumulator.add(-1, "Gift card", 50);
+        accumulator.add(3, "Mouse", 35);
+        accumulator.add(7, "Laptop", 1000);
+        return accumulator;
+    }
+
+    @Test
+    void mergesTheItemsInTheOrderTheyAreFirstSeen() {
+
+        List<Struct> items = purchase().toStructs(ITEM_SCHEMA, ALL);
+
+        assertEquals(List.of(7, 3, -1), items.stream().map(item -> item.getInt32("item_id")).collect(Collectors.toList()));
+        // the first name seen, the price being the sum
+        assertEquals("Laptop", items.get(0).get("name"));
+        assertEquals(3100, items.get(0).get("price"));
+    }
+
+    @Test
+    void computesTheAggregatesOfTheMergedPrices() {
+
+        Struct laptop = purchase().toStructs(ITEM_SCHEMA, ALL).get(0);
+
+        assertEquals(3100, laptop.get("price_sum"));
+        assertEquals(3, laptop.get("price_count"));
+        assertEquals(900, laptop.get("price_min"));
+        assertEquals(1200, laptop.get("price_max"));
+        assertEquals(3100 / 3.0, laptop.getFloat64("price_avg"), 1e-9);
+    }
+
+    @Test
+    void givesTheSameItemsAsColumns() {
+
+        PriceAggregate[] aggregates = {PriceAggregate.COUNT, PriceAggregate.AVG};
+        Struct columns = purchase().toColumns(PurchaseItemSchema.mergedColumnsSchema(aggregates), aggregates);
+
+        assertEquals(List.of(7, 3, -1), columns.getArray("item_ids"));
+        assertEquals(List.of("Laptop", "Mouse", "Gift card"), columns.getArray("names"));
+        assertEquals(List.of(3100, 60, 50), columns.getArray("prices"));
+        assertEquals(List.of(3, 2, 1), columns.getArray("price_counts"));
+        assertEquals(List.of(3100 / 3.0, 30.0, 50.0), columns.getArray("price_avgs"));
+    }
+
+    @Test
+    void keepsTheTotalsOfThePurchaseBeforeTheMerge() {
+
+        PurchaseItemAccumulator accumulator = purchase();
+
+        assertEquals(3210L, accumulator.totalSpend());
+        assertEquals(6, accumulator.itemCount());
+        assertEquals(3, accumulator.size());
+    }
+
+    @Test
+    void growsPastItsExpectedItems() {
+
+        PurchaseItemAccumulator accumulator = new PurchaseItemAccumulator(1);
+        // ids sharing their low bits, twice each
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 1000; i++) {
+                accumulator.add(i << 16, "item " + i, i);
+            }
+        }
+
+        assertEquals(1000, accumulator.size());
+        List<Struct> items = accumulator.toStructs(ITEM_SCHEMA, ALL);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i << 16, items.get(i).get("item_id"));
+            assertEquals(2 * i, items.get(i).get("price"));
+            assertEquals(2, items.get(i).get("price_count"));
+        }
+    }
+
+    @Test
+    void selectsTheTopItemsByMergedPrice() {
+
+        PurchaseItemAccumulator accumulator = new PurchaseItemAccumulator(4);
+        accumulator.add(1, "a", 10);
+        accumulator.add(2, "b", 30);
+        accumulator.add(3, "c", 20);
+        accumulator.add(4, "d", 30);
+        accumulator.add(1, "a", 15);
+        accumulator.add(5, "e", 5);
+
+        // b and d tie at 30, b was seen first
+        assertArrayEquals(new int[]{1, 3, 0}, accumulator.top(3));
+        assertArrayEquals(new int[]{1, 3, 0, 2, 4}, accumulator.top(10));
+        assertArrayEquals(new int[0], accumulator.top(0));
+        assertArrayEquals(new int[0], new PurchaseItemAccumulator(4).top(3));
+
+        List<Struct> top = accumulator.toStructs(ITEM_SCHEMA, ALL, accumulator.top(2));
+        assertEquals(List.of(2, 4), top.stream().map(item -> item.getInt32("item_id")).collect(Collectors.toList()));
+    }
+}
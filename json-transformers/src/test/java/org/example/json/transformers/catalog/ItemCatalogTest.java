@@ -0,0 +1,149 @@
+package org.example.json.transformers.catalog;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    private Path catalog(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void findsTheColumnsOfAnItem() throws IOException {
+
+        Path path = catalog("catalog.csv", "item_id,category,sku\r\n1, books ,B-0001\r\n\r\n2,jeux vidéo,G-0002\n3,toys\n1,comics,C-0001");
+        CatalogIndex index = CatalogIndex.load(path, List.of());
+        try {
+            assertEquals(List.of("category", "sku"), index.columns());
+            assertEquals(4, index.rows());
+            // trimmed, the later row of the same item wins
+            assertEquals("comics", index.value(0, index.row(1)));
+            assertEquals("jeux vidéo", index.value(0, index.row(2)));
+            // a shorter row has null values
+            assertNull(index.value(1, index.row(3)));
+            assertNull(index.value(1, index.row(3)));
+            assertEquals(-1, index.row(4));
+            // decoded once per snapshot
+            assertSame(index.value(0, index.row(2)), index.value(0, index.row(2)));
+        } finally {
+            index.release();
+        }
+        assertTrue(index.released());
+    }
+
+    @Test
+    void keepsOnlyTheConfiguredColumns() throws IOException {
+
+        Path path = catalog("catalog.csv", "item_id,category,sku\n1,books,B-0001\n");
+        Schema item = SchemaBuilder.struct()
+                .field("item_id", Schema.INT32_SCHEMA)
+                .field("sku", Schema.OPTIONAL_STRING_SCHEMA)
+                .build();
+
+        try (ItemCatalog catalog = new ItemCatalog(path, List.of("sku"), 0)) {
+            Struct known = new Struct(item).put("item_id", 1);
+            Struct unknown = new Struct(item).put("item_id", 2);
+            CatalogIndex index = catalog.acquire();
+            try {
+                ItemCatalog.enrich(index, known, 1, catalog.fields(item));
+                ItemCatalog.enrich(index, unknown, 2, catalog.fields(item));
+            } finally {
+                index.release();
+            }
+            assertEquals("B-0001", known.get("sku"));
+            assertNull(unknown.get("sku"));
+            // a transformer may be closed twice
+            catalog.close();
+        }
+    }
+
+    @Test
+    void refusesAnUnknownColumnOrABrokenCatalog() throws IOException {
+
+        Path path = catalog("catalog.csv", "item_id,category\n1,books\n");
+
+        assertThrows(ConfigException.class, () -> ItemCatalog.open(path.toString(), List.of("sku"), 0, "catalog.path"));
+        assertThrows(ConfigException.class, () -> ItemCatalog.open(catalog("empty.csv", "").toString(), List.of(), 0, "catalog.path"));
+        assertThrows(ConfigException.class, () -> ItemCatalog.open(catalog("ids.csv", "item_id,category\none,books\n").toString(), List.of(), 0, "catalog.path"));
+        assertThrows(ConfigException.class, () -> ItemCatalog.open(directory.resolve("missing.csv").toString(), List.of(), 0, "catalog.path"));
+        assertNull(ItemCatalog.open(null, List.of(), 0, "catalog.path"));
+    }
+
+    @Test
+    void reloadsAChangedCatalogAndReleasesThePreviousOne() throws Exception {
+
+        Path path = catalog("catalog.csv", "item_id,category\n1,books\n");
+        try (ItemCatalog catalog = new ItemCatalog(path, List.of(), 20)) {
+
+            CatalogIndex first = catalog.acquire();
+            // replaced atomically, as the readme asks
+            Path next = catalog("catalog.csv.next", "item_id,category\n1,comics\n2,games\n");
+            Files.move(next, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (catalog.reloads() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, catalog.reloads());
+
+            // the record still reading the previous snapshot keeps it
+            assertFalse(first.released());
+            assertEquals("books", first.value(0, first.row(1)));
+            first.release();
+            assertTrue(first.released());
+
+            CatalogIndex second = catalog.acquire();
+            try {
+                assertEquals("comics", second.value(0, second.row(1)));
+                assertEquals("games", second.value(0, second.row(2)));
+            } finally {
+                second.release();
+            }
+            assertFalse(second.released());
+        }
+    }
+
+    @Test
+    void keepsThePreviousCatalogWhenTheReloadFails() throws Exception {
+
+        Path path = catalog("catalog.csv", "item_id,category\n1,books\n");
+        try (ItemCatalog catalog = new ItemCatalog(path, List.of(), 20)) {
+
+            CatalogIndex first = catalog.acquire();
+            first.release();
+            // the category column is gone
+            Files.move(catalog("catalog.csv.next", "item_id,sku\n1,B-0001\n2,G-0002\n"), path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Thread.sleep(200);
+
+            assertEquals(0, catalog.reloads());
+            CatalogIndex index = catalog.acquire();
+            try {
+                assertEquals(first, index);
+                assertEquals("books", index.value(0, index.row(1)));
+            } finally {
+                index.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.json.transformers.converters;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonArraySplitterTest {
+
+    // the cuts of the bytes, as string positions ( the json below is ascii )
+    private static int[] split(String json, int chunks) {
+
+        int[] cuts = JsonArraySplitter.split(json, chunks);
+        byte[] bytes = ("xx" + json + "yy").getBytes(StandardCharsets.UTF_8);
+        int[] byteCuts = JsonArraySplitter.split(bytes, 2, bytes.length - 4, chunks);
+        if (cuts == null) {
+            assertNull(byteCuts);
+            return null;
+        }
+        for (int i = 0; i < byteCuts.length; i++) {
+            byteCuts[i] -= 2;
+        }
+        assertArrayEquals(cuts, byteCuts);
+        return cuts;
+    }
+
+    @Test
+    void cutsAtTheCommasOfTheTopLevelArray() {
+
+        String json = "[1,2,3,4]";
+
+        assertArrayEquals(new int[]{0, 2, 4, 6, 8}, split(json, 4));
+        assertArrayEquals(new int[]{0, 4, 8}, split(json, 2));
+        assertArrayEquals(new int[]{0, 8}, split(json, 1));
+    }
+
+    @Test
+    void skipsTheCommasInsideTheElements() {
+
+        String json = " [{\"a\":[1,2],\"b\":\"x,]}\\\",\"},{\"c\":\",\"}]";
+        int[] cuts = split(json, 8);
+
+        assertEquals(3, cuts.length);
+        assertEquals(',', json.charAt(cuts[1]));
+        assertEquals("{\"a\":[1,2],\"b\":\"x,]}\\\",\"}", json.substring(cuts[0] + 1, cuts[1]));
+        assertEquals("{\"c\":\",\"}", json.substring(cuts[1] + 1, cuts[2]));
+    }
+
+    @Test
+    void cutsMultiByteCharactersInUtf8Untouched() {
+
+        String json = "[\"é,€\",\"😀\",\"x\"]";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        int[] cuts = JsonArraySplitter.split(bytes, 0, bytes.length, 3);
+
+        assertEquals(4, cuts.length);
+        assertEquals("\"é,€\"", new String(bytes, cuts[0] + 1, cuts[1] - cuts[0] - 1, StandardCharsets.UTF_8));
+        assertEquals("\"😀\"", new String(bytes, cuts[1] + 1, cuts[2] - cuts[1] - 1, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givesUpOnAnythingButAWellClosedArray() {
+
+        assertNull(split("{\"a\":1}", 2));
+        assertNull(split("[1,2", 2));
+        assertNull(split("[\"1,2]", 2));
+        assertNull(split("  ", 2));
+        assertArrayEquals(new int[]{0, 1}, split("[]", 2));
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelItemDecoderTest {
+
+    private static final int ITEMS = 5_000;
+
+    @BeforeEach
+    void acquire() {
+        // whatever the cores of the machine running the tests
+        ParallelItemDecoder.acquire(4);
+    }
+
+    @AfterEach
+    void release() {
+        ParallelItemDecoder.release();
+    }
+
+    // names with commas, brackets, escapes and multi byte characters, so that a wrong cut would show
+    private static String items() {
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ITEMS; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"item_id\":").append(i)
+                    .append(",\"name\":\"item, [").append(i).append("] \\\"é€\\\"\",\"price\":").append(i % 100).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static List<String> parsed(Object json) throws IOException {
+
+        List<String> items = new ArrayList<>();
+        int count = ParallelItemDecoder.parse(json, null, (itemId, name, price) -> items.add(itemId + "|" + name + "|" + price));
+        assertEquals(items.size(), count);
+        return items;
+    }
+
+    private static List<String> sequential(String json) throws IOException {
+
+        List<String> items = new ArrayList<>();
+        PurchaseItemConverter.parse(json, (itemId, name, price) -> items.add(itemId + "|" + name + "|" + price));
+        return items;
+    }
+
+    @Test
+    void givesTheItemsInTheirOrder() throws IOException {
+
+        String json = items();
+        List<String> expected = sequential(json);
+        assertEquals(ITEMS, expected.size());
+
+        assertEquals(expected, parsed(json));
+        assertEquals(expected, parsed(json.getBytes(StandardCharsets.UTF_8)));
+
+        // a heap buffer read from its position, and a direct one
+        byte[] bytes = ("  " + json + "  ").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, parsed(ByteBuffer.wrap(bytes, 2, bytes.length - 2).slice()));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertEquals(expected, parsed(direct));
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void leavesAnArrayItCannotSplitToTheSequentialParser() throws IOException {
+
+        assertEquals(-1, ParallelItemDecoder.parse("[{\"item_id\":1,\"name\":\"a\",\"price\":1}]", null, (itemId, name, price) -> { }));
+        assertEquals(-1, ParallelItemDecoder.parse("[{\"item_id\":1", null, (itemId, name, price) -> { }));
+    }
+
+    @Test
+    void reportsTheErrorsOfAChunkAsTheSequentialParser() {
+
+        String wrongValue = items().replace("\"price\":42}", "\"price\":\"free\"}");
+        String brokenItem = items().replace("\"price\":42}", "\"price\":42,}");
+
+        assertThrows(JsonParseException.class, () -> parsed(wrongValue));
+        assertThrows(IOException.class, () -> parsed(brokenItem));
+    }
+
+    @Test
+    void stopsThePoolWithTheLastUser() throws IOException {
+
+        ParallelItemDecoder.acquire();
+        ParallelItemDecoder.release();
+        assertEquals(4, ParallelItemDecoder.parallelism());
+
+        ParallelItemDecoder.release();
+        try {
+            assertEquals(0, ParallelItemDecoder.parallelism());
+            assertEquals(-1, ParallelItemDecoder.parse(items(), null, (itemId, name, price) -> { }));
+            assertThrows(IllegalStateException.class, ParallelItemDecoder::release);
+        } finally {
+            ParallelItemDecoder.acquire(4);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurchaseItemConverterTest {
+
+    private static final String ITEMS = "[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},"
+            + "{\"price\":25,\"name\":\"Mouse\",\"item_id\":2},"
+            + "{\"item_id\":1,\"name\":\"Laptop\",\"price\":1100}]";
+
+    private static List<String> parsed(Object json, InputFormat format) throws IOException {
+
+        List<String> items = new ArrayList<>();
+        PurchaseItemConverter.parse(json, format, new StringCache(16), (itemId, name, price) -> items.add(itemId + ":" + name + ":" + price));
+        return items;
+    }
+
+    private static List<String> parsed(String json) throws IOException {
+        return parsed(json, InputFormat.JSON);
+    }
+
+    // the same items in binary json
+    private static byte[] smile(String json) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonParser parser = InputFormat.JSON.factory().createParser(json);
+             JsonGenerator generator = InputFormat.SMILE.factory().createGenerator(bytes)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void givesTheItemsInOrderWhateverTheOrderOfTheirFields() throws IOException {
+
+        List<String> expected = List.of("1:Laptop:1200", "2:Mouse:25", "1:Laptop:1100");
+
+        assertEquals(expected, parsed(ITEMS));
+        assertEquals(expected, parsed(ITEMS.getBytes(StandardCharsets.UTF_8), InputFormat.JSON));
+        assertEquals(expected, parsed(ByteBuffer.wrap(ITEMS.getBytes(StandardCharsets.UTF_8)), InputFormat.JSON));
+        assertEquals(expected, parsed(smile(ITEMS), InputFormat.SMILE));
+        assertEquals(List.of(), parsed(" [ ] "));
+    }
+
+    @Test
+    void skipsTheUnknownFieldsWithTheirContent() throws IOException {
+
+        String json = "[{\"item_id\":1,\"tags\":{\"name\":\"nested\",\"price\":[1,2]},\"name\":\"Laptop\",\"extra\":[{\"item_id\":9}],\"price\":1200}]";
+
+        assertEquals(List.of("1:Laptop:1200"), parsed(json));
+    }
+
+    @Test
+    void buildsTheStructsAndTheColumnsOfTheItems() throws IOException {
+
+        List<Struct> items = PurchaseItemConverter.convertToStructArray(ITEMS);
+        assertEquals(3, items.size());
+        assertEquals(2, items.get(1).get("item_id"));
+        assertEquals("Mouse", items.get(1).get("name"));
+
+        Struct columns = PurchaseItemConverter.convertToColumns(ITEMS, InputFormat.JSON, null);
+        assertEquals(List.of(1, 2, 1), columns.getArray("item_ids"));
+        assertEquals(List.of("Laptop", "Mouse", "Laptop"), columns.getArray("names"));
+        assertEquals(List.of(1200, 25, 1100), columns.getArray("prices"));
+
+        assertNull(PurchaseItemConverter.convertToStructArray(null));
+    }
+
+    @Test
+    void reportsABrokenJsonAsAParseError() {
+
+        assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200"));
+        assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":1,,}]"));
+        assertThrows(JsonParseException.class, () -> parsed("{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200}"));
+        assertThrows(JsonParseException.class, () -> parsed("[1, 2]"));
+        assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":1,\"name\":\"Laptop\"}]"));
+    }
+
+    @Test
+    void refusesTheValuesWhichAreNotInts() {
+
+        for (String price : new String[]{"\"12\"", "12.5", "1e3", "null", "true", "3000000000", "{\"amount\":12}", "[12]"}) {
+
+            String json = "[{\"item_id\":1,\"name\":\"Laptop\",\"price\":" + price + "}]";
+            JsonParseException e = assertThrows(JsonParseException.class, () -> parsed(json), price);
+            assertTrue(e.getOriginalMessage().endsWith(" price, expected an int"), e.getOriginalMessage());
+        }
+        assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":\"1\",\"name\":\"Laptop\",\"price\":1200}]"));
+    }
+
+    @Test
+    void refusesTheNamesWhichAreNotStrings() {
+
+        for (String name : new String[]{"null", "12", "{\"en\":\"Laptop\",\"price\":1}", "[\"Laptop\"]"}) {
+
+            String json = "[{\"item_id\":1,\"name\":" + name + ",\"price\":1200}]";
+            assertThrows(JsonParseException.class, () -> parsed(json), name);
+            assertThrows(JsonParseException.class, () -> PurchaseItemConverter.parse(json, InputFormat.JSON, null, (itemId, itemName, price) -> { }), name);
+        }
+    }
+
+    @Test
+    void describesTheWrongValue() {
+
+        JsonParseException object = assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":{\"id\":1},\"name\":\"Laptop\",\"price\":1200}]"));
+        JsonParseException decimal = assertThrows(JsonParseException.class, () -> parsed("[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1.5}]"));
+
+        assertEquals("Purchased item with an object item_id, expected an int", object.getOriginalMessage());
+        assertEquals("Purchased item with a decimal price, expected an int", decimal.getOriginalMessage());
+    }
+
+    @Test
+    void refusesAFieldWhichIsNeitherAStringNorBytes() {
+
+        assertThrows(DataException.class, () -> parsed(Map.of(), InputFormat.JSON));
+        assertThrows(DataException.class, () -> parsed(ITEMS, InputFormat.SMILE));
+    }
+}
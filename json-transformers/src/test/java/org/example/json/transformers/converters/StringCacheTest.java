@@ -0,0 +1,93 @@
+package org.example.json.transformers.converters;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StringCacheTest {
+
+    // the strings of a json array, read through the cache
+    private static List<String> strings(StringCache cache, String... values) throws IOException {
+
+        StringBuilder json = new StringBuilder("[");
+        for (String value : values) {
+            json.append(json.length() == 1 ? "" : ",").append('"').append(value).append('"');
+        }
+        List<String> strings = new ArrayList<>();
+        try (JsonParser parser = InputFormat.JSON.factory().createParser(json.append(']').toString())) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                    strings.add(cache.get(parser));
+                }
+            }
+        }
+        return strings;
+    }
+
+    @Test
+    void givesTheSameInstanceForARepeatedString() throws IOException {
+
+        StringCache cache = new StringCache(16);
+        List<String> names = strings(cache, "Laptop", "Mouse", "Laptop");
+        // another parser, another buffer
+        String later = strings(cache, "Laptop").get(0);
+
+        assertEquals(List.of("Laptop", "Mouse", "Laptop"), names);
+        assertSame(names.get(0), names.get(2));
+        assertSame(names.get(0), later);
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    void doesNotKeepTheLongStrings() throws IOException {
+
+        StringCache cache = new StringCache(16);
+        String description = "A".repeat(65);
+        List<String> descriptions = strings(cache, description, description);
+
+        assertEquals(description, descriptions.get(0));
+        assertNotSame(descriptions.get(0), descriptions.get(1));
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.evictions());
+
+        // 64 characters are still kept
+        List<String> names = strings(cache, "B".repeat(64), "B".repeat(64));
+        assertSame(names.get(0), names.get(1));
+    }
+
+    @Test
+    void replacesTheStringOfTheSameSlot() throws IOException {
+
+        // a single slot : every string collides with the previous one
+        StringCache cache = new StringCache(1);
+        List<String> names = strings(cache, "Laptop", "Mouse", "Laptop", "Laptop");
+
+        assertEquals(1, cache.capacity());
+        assertNotSame(names.get(0), names.get(2));
+        assertSame(names.get(2), names.get(3));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    void roundsItsCapacityToAPowerOfTwo() {
+
+        assertEquals(16, new StringCache(16).capacity());
+        assertEquals(32, new StringCache(17).capacity());
+        assertEquals(0, new StringCache(4).hitRate());
+        assertThrows(IllegalArgumentException.class, () -> new StringCache(0));
+    }
+}
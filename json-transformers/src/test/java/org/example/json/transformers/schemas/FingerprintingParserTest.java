@@ -0,0 +1,65 @@
+package org.example.json.transformers.schemas;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class FingerprintingParserTest {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static long walked(String json) throws IOException {
+
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            parser.nextToken();
+            return ShapeFingerprint.of(parser);
+        }
+    }
+
+    private static long read(String json) throws IOException {
+
+        try (FingerprintingParser parser = new FingerprintingParser(FACTORY.createParser(json))) {
+            while (parser.nextToken() != null) {
+                // the fingerprint is read along the way
+            }
+            return parser.fingerprint();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1", "\"x\"", "null", "true", "1.5", "123456789012345678901234",
+            "[]", "{}", "[1,2,3]", "[1,\"x\",1]",
+            "{\"a\":1,\"b\":{\"c\":[{\"d\":null},{\"d\":2.5}],\"e\":[[1],[2,3]]}}",
+            "[{\"item_id\":1,\"name\":\"Laptop\",\"price\":1200},{\"item_id\":2,\"name\":\"Mouse\",\"price\":25}]",
+            "[[[[[[[[[[[1]]]]]]]]]]]"
+    })
+    void readsTheSameFingerprintAsTheShapeWalk(String json) throws IOException {
+        assertEquals(walked(json), read(json));
+    }
+
+    @Test
+    void fingerprintsTheChildrenItSkips() throws IOException {
+
+        String json = "{\"a\":{\"b\":[1,2]},\"c\":1}";
+        try (FingerprintingParser parser = new FingerprintingParser(FACTORY.createParser(json))) {
+            parser.nextToken();
+            parser.nextToken();
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            parser.skipChildren();
+            while (parser.nextToken() != null) {
+                // the rest of the document
+            }
+            assertEquals(walked(json), parser.fingerprint());
+        }
+        assertNotEquals(read(json), read("{\"a\":{\"b\":[\"1\"]},\"c\":1}"));
+    }
+}
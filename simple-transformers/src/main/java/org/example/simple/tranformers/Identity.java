@@ -10,6 +10,9 @@ import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.Requirements;
 import org.apache.kafka.connect.transforms.util.SchemaUtil;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.example.transformers.common.Diagnostics;
+import org.example.transformers.common.TransformMetrics;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,7 +24,7 @@ public abstract class Identity<R extends ConnectRecord<R>> implements Transforma
         It is just an example to show the boilerplate code that is needed to create a transformation.
      */
 
-    public static final ConfigDef CONFIG_DEF = new ConfigDef();
+    public static final ConfigDef CONFIG_DEF = Diagnostics.define(TransformMetrics.define(new ConfigDef()));
 
     protected abstract Schema operatingSchema(R kafkaRecord);
 
@@ -29,15 +32,37 @@ public abstract class Identity<R extends ConnectRecord<R>> implements Transforma
 
     protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
 
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+    private Diagnostics diagnostics;
+
     @Override
     public void configure(Map<String, ?> map) {
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
+        metrics = TransformMetrics.acquire(config, getClass());
+        diagnostics = Diagnostics.create(config, log);
     }
 
     @Override
     public R apply(R record) {
 
-        log.info("Applying identity transformation ...");
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
+        if (diagnostics.sample()) {
+            diagnostics.log("Applying identity transformation to {}", record);
+        }
         if(record.value() == null) {
+            metrics.passThrough();
             return record;
         }
         if(operatingSchema(record) == null) {
@@ -91,6 +116,8 @@ public abstract class Identity<R extends ConnectRecord<R>> implements Transforma
 
     @Override
     public void close() {
+        metrics.release();
+        metrics = TransformMetrics.DISABLED;
     }
 
     @Override
@@ -2,32 +2,46 @@ package org.example.simple.tranformers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.ConnectRecord;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
 import org.apache.kafka.connect.transforms.Transformation;
 import org.apache.kafka.connect.transforms.util.Requirements;
 import org.apache.kafka.connect.transforms.util.SchemaUtil;
 import org.apache.kafka.connect.transforms.util.SimpleConfig;
-
+import org.example.transformers.common.Diagnostics;
+import org.example.transformers.common.SchemaCache;
+import org.example.transformers.common.SchemaInterner;
+import org.example.transformers.common.TransformMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class RenameField <R extends ConnectRecord<R>> implements Transformation<R> {
 
+    public static final String RENAMES_CONFIG = "renames";
     public static final String CURRENT_FIELD_CONFIG = "field.current";
     public static final String NEW_FIELD_CONFIG = "field.new";
+    public static final String SCHEMA_CACHE_SIZE_CONFIG = "schema.cache.size";
 
-    public static final ConfigDef CONFIG_DEF = new ConfigDef()
-            .define(CURRENT_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Field name to rename")
-            .define(NEW_FIELD_CONFIG, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, "Field new name")
-            ;
-    // as you can see, this transformer can only work with string fields (don't use antoher type of field)
+    public static final ConfigDef CONFIG_DEF = Diagnostics.define(TransformMetrics.define(new ConfigDef()
+            .define(RENAMES_CONFIG, ConfigDef.Type.LIST, Collections.emptyList(), ConfigDef.Importance.HIGH,
+                    "List of renames as current:new pairs, e.g. name:first_name,address.zip:postal_code. A dotted path reaches a field of a nested struct, it is renamed inside that struct")
+            .define(CURRENT_FIELD_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Field name to rename (single rename, prefer " + RENAMES_CONFIG + ")")
+            .define(NEW_FIELD_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, "Field new name (single rename, prefer " + RENAMES_CONFIG + ")")
+            .define(SCHEMA_CACHE_SIZE_CONFIG, ConfigDef.Type.INT, 16, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, "Number of distinct schemas for which the rename plan is kept")));
+    // renamed fields keep their position and their schema
 
     protected abstract Schema operatingSchema(R kafkaRecord);
 
@@ -35,26 +49,57 @@ public abstract class RenameField <R extends ConnectRecord<R>> implements Transf
 
     protected abstract R newRecord(R kafkaRecord, Schema updatedSchema, Object updatedValue);
 
-    private String currentFieldName;
-    private String newFieldName;
+    private RenameSpec renames;
+    private SchemaCache<RenamePlan> planCache;
+
+    private TransformMetrics metrics = TransformMetrics.DISABLED;
+    private Diagnostics diagnostics;
 
     @Override
     public void configure(Map<String, ?> map) {
 
         SimpleConfig config = new SimpleConfig(CONFIG_DEF, map);
-        currentFieldName = config.getString(CURRENT_FIELD_CONFIG);
-        newFieldName = config.getString(NEW_FIELD_CONFIG);
+        List<String> renamePairs = new ArrayList<>(config.getList(RENAMES_CONFIG));
+        String currentFieldName = config.getString(CURRENT_FIELD_CONFIG);
+        String newFieldName = config.getString(NEW_FIELD_CONFIG);
+        if (currentFieldName != null || newFieldName != null) {
+            if (currentFieldName == null || newFieldName == null) {
+                throw new ConfigException(CURRENT_FIELD_CONFIG + " and " + NEW_FIELD_CONFIG + " must be set together");
+            }
+            renamePairs.add(currentFieldName + ":" + newFieldName);
+        }
+        if (renamePairs.isEmpty()) {
+            throw new ConfigException(RENAMES_CONFIG, "", "At least one rename is required");
+        }
+        renames = RenameSpec.parse(renamePairs);
+        planCache = new SchemaCache<>(config.getInt(SCHEMA_CACHE_SIZE_CONFIG));
+        metrics = TransformMetrics.acquire(config, getClass());
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, planCache);
+        diagnostics = Diagnostics.create(config, log);
 
         log.info("Configuration: ");
         config.values().entrySet().stream().map(entry -> entry.getKey() + ": " + entry.getValue()).collect(Collectors.toList()).forEach(log::info);
-        log.info("Current Field Name: {}", currentFieldName);
-        log.info("New Field Name: {}", newFieldName);
+        log.info("Renames: {}", renamePairs);
     }
 
     @Override
     public R apply(R record) {
 
+        long start = metrics.start();
+        try {
+            R transformed = transform(record);
+            metrics.applied(start, transformed);
+            return transformed;
+        } catch (RuntimeException e) {
+            metrics.failed(start);
+            throw e;
+        }
+    }
+
+    private R transform(R record) {
+
         if(record.value() == null) {
+            metrics.passThrough();
             return record;
         }
         if(operatingSchema(record) == null) {
@@ -71,66 +116,230 @@ public abstract class RenameField <R extends ConnectRecord<R>> implements Transf
         // extract the value of the record which is a map
         Map<String,Object> recordValues = Requirements.requireMapOrNull(operatingValue(record), PURPOSE);
 
-        Object currentValue = recordValues.get(currentFieldName);
-
-        // create a new map with the updated value
-        Map<String, Object> updatedRecordValues = new HashMap<>(recordValues);
-        updatedRecordValues.put(newFieldName,currentValue);
+        // create a new map with the renamed keys ( the old keys are removed )
+        Map<String, Object> updatedRecordValues = renameMap(recordValues, renames);
+        diagnose(recordValues, updatedRecordValues);
 
         return newRecord(record, null, updatedRecordValues);
     }
 
+    // one pass over the original keys : a swap ( a:b,b:a ) reads both values before writing any of them
+    // the same checks as RenamePlan.compile, a key standing for a field of the schema
+    private static Map<String, Object> renameMap(Map<String, Object> values, RenameSpec spec) {
+
+        for (String currentName : spec.renames.keySet()) {
+            if (!values.containsKey(currentName)) {
+                throw new DataException(spec.path + currentName + " is not a valid field name");
+            }
+        }
+        for (String nestedName : spec.nested.keySet()) {
+            if (!values.containsKey(nestedName)) {
+                throw new DataException(spec.path + nestedName + " is not a valid field name");
+            }
+        }
+        for (String newName : spec.renames.values()) {
+            if (values.containsKey(newName) && !spec.renames.containsKey(newName)) {
+                throw new DataException(spec.path + newName + " already exists, a field cannot be renamed to it");
+            }
+        }
+        Map<String, Object> updatedValues = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            RenameSpec nestedSpec = spec.nested.get(entry.getKey());
+            // a null struct is kept as it is, like an optional struct with schema
+            if (nestedSpec != null && value != null) {
+                if (!(value instanceof Map)) {
+                    throw new DataException(spec.path + entry.getKey() + " is not a struct, its fields cannot be renamed");
+                }
+                value = renameMap(Requirements.requireMap(value, PURPOSE), nestedSpec);
+            }
+            updatedValues.put(spec.renames.getOrDefault(entry.getKey(), entry.getKey()), value);
+        }
+        return updatedValues;
+    }
+
     private R renameWithSchema(R record) {
 
         //extracting the schema of the record
         Schema schema = operatingSchema(record);
 
-        // copy the schema of the record ( name, version, comments, etc )
-        SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+        // the updated schema and the field mapping are only computed the first time we see this schema
+        RenamePlan plan = planCache.computeIfAbsent(schema, this::compilePlan);
 
-        // copy all the existing fields from old schema
-        log.info("Current Schema Builder {}", builder);
-        log.info("Current Schema fields: {}", schema.fields());
-        for (Field field : schema.fields()) {
+        // extract the value of the record which is a struct and not a map anymore
+        Struct recordValues = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
 
-            // remove the current field name from the schema
-            if(Objects.equals(field.name(), currentFieldName)) {
-                continue;
+        // create a new struct with the updated value, copied by position in a single pass
+        Struct recordUpdatedValues = plan.copy(recordValues);
+        diagnose(recordValues, recordUpdatedValues);
+
+        return newRecord(record, plan.updatedSchema, recordUpdatedValues);
+    }
+
+    // the values of a sampled record, before and after the renames
+    private void diagnose(Object recordValues, Object recordUpdatedValues) {
+        if (diagnostics.sample()) {
+            diagnostics.log("Record Values {}, Record Updated Values {}", recordValues, recordUpdatedValues);
+        }
+    }
+
+    private RenamePlan compilePlan(Schema schema) {
+
+        RenamePlan plan = RenamePlan.compile(schema, renames);
+        log.info("Compiled rename plan for schema {} : {}", schema.name(), plan.updatedSchema.fields());
+        return plan;
+    }
+
+    public SchemaCache<?> planCache() {
+        return planCache;
+    }
+
+    // the configured renames, as a tree following the dotted paths
+    private static final class RenameSpec {
+
+        // the dotted path of the struct, for the error messages
+        private final String path;
+        private final Map<String, String> renames = new LinkedHashMap<>();
+        private final Map<String, RenameSpec> nested = new LinkedHashMap<>();
+
+        private RenameSpec(String path) {
+            this.path = path;
+        }
+
+        private static RenameSpec parse(List<String> renamePairs) {
+
+            RenameSpec root = new RenameSpec("");
+            for (String pair : renamePairs) {
+
+                String[] parts = pair.split(":");
+                if (parts.length != 2 || parts[0].trim().isEmpty() || parts[1].trim().isEmpty()) {
+                    throw new ConfigException(RENAMES_CONFIG, renamePairs, "Invalid rename " + pair + ", expected current:new");
+                }
+                String[] currentPath = parts[0].trim().split("\\.");
+                String newName = parts[1].trim();
+
+                // the new name may be given as a full path, it must stay in the same struct
+                int lastDot = newName.lastIndexOf('.');
+                if (lastDot >= 0) {
+                    String parentPath = String.join(".", Arrays.copyOf(currentPath, currentPath.length - 1));
+                    if (!newName.substring(0, lastDot).equals(parentPath)) {
+                        throw new ConfigException(RENAMES_CONFIG, renamePairs, "Invalid rename " + pair + ", a field can only be renamed inside its own struct");
+                    }
+                    newName = newName.substring(lastDot + 1);
+                }
+
+                RenameSpec spec = root;
+                for (int i = 0; i < currentPath.length - 1; i++) {
+                    String parent = spec.path + currentPath[i] + ".";
+                    spec = spec.nested.computeIfAbsent(currentPath[i], name -> new RenameSpec(parent));
+                }
+                if (spec.renames.putIfAbsent(currentPath[currentPath.length - 1], newName) != null) {
+                    throw new ConfigException(RENAMES_CONFIG, renamePairs, "Field " + parts[0].trim() + " is renamed twice");
+                }
             }
-            builder.field(field.name(), field.schema());
+            root.checkTargets(renamePairs);
+            return root;
         }
 
-        // add one more field to our schema
-        Schema updatedSchema = builder.field(newFieldName, Schema.STRING_SCHEMA).build();
+        // the collisions known from the configuration alone, the ones with the fields of a record are checked on the record
+        private void checkTargets(List<String> renamePairs) {
+
+            Map<String, String> sources = new HashMap<>();
+            for (Map.Entry<String, String> rename : renames.entrySet()) {
+                String other = sources.putIfAbsent(rename.getValue(), rename.getKey());
+                if (other != null) {
+                    throw new ConfigException(RENAMES_CONFIG, renamePairs, "Fields " + path + other + " and " + path + rename.getKey() + " are both renamed to " + rename.getValue());
+                }
+                // a struct holding renamed fields exists in the record, it keeps its name unless it is renamed too
+                if (nested.containsKey(rename.getValue()) && !renames.containsKey(rename.getValue())) {
+                    throw new ConfigException(RENAMES_CONFIG, renamePairs, "Field " + path + rename.getKey() + " cannot be renamed to the existing field " + path + rename.getValue());
+                }
+            }
+            for (RenameSpec spec : nested.values()) {
+                spec.checkTargets(renamePairs);
+            }
+        }
+    }
 
-        log.info("Updated Schema Builder {}", builder);
-        log.info("Updated Schema Fields {}", builder.schema().fields());
+    // what we need to copy a struct of a given schema : source field i is written to updated field i,
+    // through the nested plan i when the field is a struct holding renamed fields
+    private static final class RenamePlan {
 
-        // extract the value of the record which is a struct and not a map anymore
-        Struct recordValues = Requirements.requireStructOrNull(operatingValue(record), PURPOSE);
-        log.info("Record Values {}", recordValues);
+        private final Schema updatedSchema;
+        private final Field[] sourceFields;
+        private final Field[] updatedFields;
+        private final RenamePlan[] nestedPlans;
 
-        Object currentValue = recordValues.get(currentFieldName);
-        log.info("Current Value {}", currentValue);
+        private RenamePlan(Schema updatedSchema, Field[] sourceFields, RenamePlan[] nestedPlans) {
+            this.updatedSchema = updatedSchema;
+            this.sourceFields = sourceFields;
+            this.updatedFields = updatedSchema.fields().toArray(new Field[0]);
+            this.nestedPlans = nestedPlans;
+        }
 
-        // create a new struct with the updated value
-        Struct recordUpdatedValues = new Struct(updatedSchema);
-        for (Field field : recordValues.schema().fields()) {
+        private static RenamePlan compile(Schema schema, RenameSpec spec) {
 
-            // remove the current field name from the value
-            if(Objects.equals(field.name(), currentFieldName)) {
-                continue;
+            String path = spec.path;
+            if (schema.type() != Schema.Type.STRUCT) {
+                throw new DataException(path + " is not a struct, its fields cannot be renamed");
+            }
+            for (String currentName : spec.renames.keySet()) {
+                if (schema.field(currentName) == null) {
+                    throw new DataException(path + currentName + " is not a valid field name");
+                }
             }
-            recordUpdatedValues.put(field.name(), recordValues.get(field));
+            for (String nestedName : spec.nested.keySet()) {
+                if (schema.field(nestedName) == null) {
+                    throw new DataException(path + nestedName + " is not a valid field name");
+                }
+            }
+            // same check as the one of the records without schema
+            for (String newName : spec.renames.values()) {
+                if (schema.field(newName) != null && !spec.renames.containsKey(newName)) {
+                    throw new DataException(path + newName + " already exists, a field cannot be renamed to it");
+                }
+            }
+
+            // copy the schema of the record ( name, version, comments, etc )
+            SchemaBuilder builder = SchemaUtil.copySchemaBasics(schema, SchemaBuilder.struct());
+            if (schema.isOptional()) {
+                builder.optional();
+            }
+
+            Field[] sourceFields = schema.fields().toArray(new Field[0]);
+            RenamePlan[] nestedPlans = new RenamePlan[sourceFields.length];
+            for (Field field : sourceFields) {
+
+                Schema fieldSchema = field.schema();
+                RenameSpec nestedSpec = spec.nested.get(field.name());
+                if (nestedSpec != null) {
+                    RenamePlan nestedPlan = compile(fieldSchema, nestedSpec);
+                    nestedPlans[field.index()] = nestedPlan;
+                    fieldSchema = nestedPlan.updatedSchema;
+                }
+                builder.field(spec.renames.getOrDefault(field.name(), field.name()), fieldSchema);
+            }
+            return new RenamePlan(SchemaInterner.intern(builder.build()), sourceFields, nestedPlans);
         }
-        recordUpdatedValues.put(newFieldName, currentValue);
-        log.info("Record Updated Values {}", recordUpdatedValues);
 
-        return newRecord(record, updatedSchema, recordUpdatedValues);
+        private Struct copy(Struct source) {
+
+            Struct updated = new Struct(updatedSchema);
+            for (int i = 0; i < sourceFields.length; i++) {
+                Object value = source.get(sourceFields[i]);
+                if (nestedPlans[i] != null && value != null) {
+                    value = nestedPlans[i].copy((Struct) value);
+                }
+                updated.put(updatedFields[i], value);
+            }
+            return updated;
+        }
     }
 
     @Override
     public void close() {
+        metrics.release(planCache);
+        metrics = TransformMetrics.DISABLED;
     }
 
     @Override
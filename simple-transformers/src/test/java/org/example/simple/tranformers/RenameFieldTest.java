@@ -0,0 +1,244 @@
+package org.example.simple.tranformers;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenameFieldTest {
+
+    private static final Schema ADDRESS = SchemaBuilder.struct().name("Address")
+            .field("street", Schema.STRING_SCHEMA)
+            .field("zip", Schema.OPTIONAL_STRING_SCHEMA)
+            .optional()
+            .build();
+
+    private static final Schema PERSON = SchemaBuilder.struct().name("Person").version(2)
+            .field("first_name", Schema.STRING_SCHEMA)
+            .field("last_name", Schema.STRING_SCHEMA)
+            .field("age", Schema.OPTIONAL_INT32_SCHEMA)
+            .field("address", ADDRESS)
+            .build();
+
+    private static Struct person() {
+        return new Struct(PERSON)
+                .put("first_name", "Jack")
+                .put("last_name", "Smith")
+                .put("age", 14)
+                .put("address", new Struct(ADDRESS).put("street", "Main street").put("zip", "75001"));
+    }
+
+    private static Map<String, Object> schemalessPerson() {
+        return Map.of("first_name", "Jack", "last_name", "Smith", "age", 14,
+                "address", Map.of("street", "Main street", "zip", "75001"));
+    }
+
+    private static RenameField<SourceRecord> renameValue(String renames) {
+
+        RenameField<SourceRecord> transformation = new RenameField.Value<>();
+        transformation.configure(Map.of(RenameField.RENAMES_CONFIG, renames));
+        return transformation;
+    }
+
+    private static SourceRecord record(Schema schema, Object value) {
+        return new SourceRecord(null, null, "persons", 0, null, null, schema, value);
+    }
+
+    private static List<String> fieldNames(Schema schema) {
+        return schema.fields().stream().map(field -> field.name()).collect(Collectors.toList());
+    }
+
+    @Test
+    void renamesFieldsInPlaceAndKeepsTheSchemaBasics() {
+
+        RenameField<SourceRecord> transformation = renameValue("first_name:name,age:years");
+        try {
+            SourceRecord renamed = transformation.apply(record(PERSON, person()));
+
+            Schema schema = renamed.valueSchema();
+            assertEquals(List.of("name", "last_name", "years", "address"), fieldNames(schema));
+            assertEquals("Person", schema.name());
+            assertEquals(2, schema.version());
+            assertEquals(Schema.OPTIONAL_INT32_SCHEMA, schema.field("years").schema());
+            assertEquals("Jack", ((Struct) renamed.value()).get("name"));
+            assertEquals(14, ((Struct) renamed.value()).get("years"));
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void compilesThePlanOnceForASchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("first_name:name");
+        try {
+            Schema first = transformation.apply(record(PERSON, person())).valueSchema();
+            Schema second = transformation.apply(record(PERSON, person())).valueSchema();
+
+            assertSame(first, second);
+            assertEquals(1, transformation.planCache().hits());
+            assertEquals(1, transformation.planCache().misses());
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void renamesTheFieldsOfANestedStruct() {
+
+        RenameField<SourceRecord> transformation = renameValue("address.zip:postal_code,address:home");
+        try {
+            SourceRecord renamed = transformation.apply(record(PERSON, person()));
+            Struct home = ((Struct) renamed.value()).getStruct("home");
+
+            assertEquals(List.of("street", "postal_code"), fieldNames(home.schema()));
+            assertEquals("75001", home.get("postal_code"));
+            assertEquals(true, home.schema().isOptional());
+
+            SourceRecord schemaless = transformation.apply(record(null, schemalessPerson()));
+            assertEquals(Map.of("street", "Main street", "postal_code", "75001"), ((Map<?, ?>) schemaless.value()).get("home"));
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void acceptsTheNewNameAsAFullPath() {
+
+        RenameField<SourceRecord> transformation = renameValue("address.zip:address.postal_code");
+        try {
+            SourceRecord renamed = transformation.apply(record(PERSON, person()));
+            assertEquals("75001", ((Struct) renamed.value()).getStruct("address").get("postal_code"));
+        } finally {
+            transformation.close();
+        }
+        assertThrows(ConfigException.class, () -> renameValue("address.zip:postal_code.zip"));
+    }
+
+    @Test
+    void swapsTwoFieldsWithAndWithoutSchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("first_name:last_name,last_name:first_name");
+        try {
+            Struct swapped = (Struct) transformation.apply(record(PERSON, person())).value();
+            assertEquals("Smith", swapped.get("first_name"));
+            assertEquals("Jack", swapped.get("last_name"));
+
+            Map<?, ?> schemaless = (Map<?, ?>) transformation.apply(record(null, schemalessPerson())).value();
+            assertEquals("Smith", schemaless.get("first_name"));
+            assertEquals("Jack", schemaless.get("last_name"));
+            assertEquals(4, schemaless.size());
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void failsOnARecordAlreadyHoldingTheNewNameWithAndWithoutSchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("first_name:last_name");
+        try {
+            assertThrows(DataException.class, () -> transformation.apply(record(PERSON, person())));
+            assertThrows(DataException.class, () -> transformation.apply(record(null, schemalessPerson())));
+        } finally {
+            transformation.close();
+        }
+        RenameField<SourceRecord> nested = renameValue("address.zip:street");
+        try {
+            assertThrows(DataException.class, () -> nested.apply(record(PERSON, person())));
+            assertThrows(DataException.class, () -> nested.apply(record(null, schemalessPerson())));
+        } finally {
+            nested.close();
+        }
+    }
+
+    @Test
+    void refusesTheCollisionsKnownFromTheConfiguration() {
+
+        // two fields renamed to the same name
+        assertThrows(ConfigException.class, () -> renameValue("first_name:name,last_name:name"));
+        assertThrows(ConfigException.class, () -> renameValue("address.street:line,address.zip:line"));
+        // a field renamed twice
+        assertThrows(ConfigException.class, () -> renameValue("first_name:name,first_name:given_name"));
+        // a field renamed to a struct whose fields are renamed
+        assertThrows(ConfigException.class, () -> renameValue("first_name:address,address.zip:postal_code"));
+        assertThrows(ConfigException.class, () -> renameValue("first_name"));
+        assertThrows(ConfigException.class, () -> new RenameField.Value<SourceRecord>().configure(Map.of()));
+    }
+
+    @Test
+    void failsOnAMissingFieldWithAndWithoutSchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("middle_name:name");
+        RenameField<SourceRecord> nested = renameValue("contact.email:mail");
+        try {
+            assertThrows(DataException.class, () -> transformation.apply(record(PERSON, person())));
+            assertThrows(DataException.class, () -> transformation.apply(record(null, schemalessPerson())));
+            assertThrows(DataException.class, () -> nested.apply(record(PERSON, person())));
+            assertThrows(DataException.class, () -> nested.apply(record(null, schemalessPerson())));
+        } finally {
+            transformation.close();
+            nested.close();
+        }
+    }
+
+    @Test
+    void failsOnANestedFieldWhichIsNotAStructWithAndWithoutSchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("age.years:value");
+        try {
+            assertThrows(DataException.class, () -> transformation.apply(record(PERSON, person())));
+            assertThrows(DataException.class, () -> transformation.apply(record(null, schemalessPerson())));
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void keepsANullNestedStructWithAndWithoutSchema() {
+
+        RenameField<SourceRecord> transformation = renameValue("address.zip:postal_code");
+        try {
+            Struct homeless = person().put("address", null);
+            Map<String, Object> schemalessHomeless = new HashMap<>(schemalessPerson());
+            schemalessHomeless.put("address", null);
+
+            assertNull(((Struct) transformation.apply(record(PERSON, homeless)).value()).get("address"));
+            Map<?, ?> renamed = (Map<?, ?>) transformation.apply(record(null, schemalessHomeless)).value();
+            assertTrue(renamed.containsKey("address"));
+            assertNull(renamed.get("address"));
+        } finally {
+            transformation.close();
+        }
+    }
+
+    @Test
+    void renamesTheKeyWithTheSingleRenameOptions() {
+
+        RenameField<SourceRecord> transformation = new RenameField.Key<>();
+        transformation.configure(Map.of(RenameField.CURRENT_FIELD_CONFIG, "first_name", RenameField.NEW_FIELD_CONFIG, "name"));
+        try {
+            SourceRecord record = new SourceRecord(null, null, "persons", 0, PERSON, person(), Schema.STRING_SCHEMA, "value");
+            SourceRecord renamed = transformation.apply(record);
+
+            assertEquals("Jack", ((Struct) renamed.key()).get("name"));
+            assertEquals("value", renamed.value());
+        } finally {
+            transformation.close();
+        }
+    }
+}
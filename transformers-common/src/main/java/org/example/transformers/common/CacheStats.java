@@ -0,0 +1,14 @@
+package org.example.transformers.common;
+
+public interface CacheStats {
+
+    /*
+        The counters of a cache of a transformer, published by TransformMetrics ( see TransformMetrics.watch ).
+     */
+
+    long hits();
+
+    long misses();
+
+    long evictions();
+}
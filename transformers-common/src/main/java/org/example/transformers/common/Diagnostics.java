@@ -0,0 +1,132 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.slf4j.Logger;
+
+import java.util.Locale;
+
+public final class Diagnostics {
+
+    /*
+        The content of the records, logged by a transformer for a few records only : never ( the default ), one record out of N,
+        or at most N records per second. Deciding costs a field read when it is off, a counter otherwise.
+        The payloads are only formatted when a record is sampled and the logger is at INFO, and cut to diagnostics.max.chars,
+        so that a record with thousands of items does not fill the log. Each task of a connector has its own diagnostics.
+     */
+
+    public static final String DIAGNOSTICS_MODE_CONFIG = "diagnostics.mode";
+    public static final String DIAGNOSTICS_SAMPLE_EVERY_CONFIG = "diagnostics.sample.every";
+    public static final String DIAGNOSTICS_MAX_PER_SECOND_CONFIG = "diagnostics.max.per.second";
+    public static final String DIAGNOSTICS_MAX_CHARS_CONFIG = "diagnostics.max.chars";
+
+    private enum Mode {
+        OFF, SAMPLED, RATE
+    }
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    private final Mode mode;
+    private final long sampleEvery;
+    private final int maxPerSecond;
+    private final int maxChars;
+
+    // sampled : the records seen, rate : the records logged in the current second
+    private long count;
+    private long windowStart;
+
+    private Diagnostics(Logger logger, Mode mode, long sampleEvery, int maxPerSecond, int maxChars) {
+        this.logger = logger;
+        this.mode = mode;
+        this.sampleEvery = sampleEvery;
+        this.maxPerSecond = maxPerSecond;
+        this.maxChars = maxChars;
+    }
+
+    // adds the diagnostics settings to the config of a transformer
+    public static ConfigDef define(ConfigDef configDef) {
+        return configDef
+                .define(DIAGNOSTICS_MODE_CONFIG, ConfigDef.Type.STRING, "off", ConfigDef.CaseInsensitiveValidString.in("off", "sampled", "rate"), ConfigDef.Importance.LOW,
+                        "Records whose content is logged : off, sampled ( one out of diagnostics.sample.every ) or rate ( at most diagnostics.max.per.second )")
+                .define(DIAGNOSTICS_SAMPLE_EVERY_CONFIG, ConfigDef.Type.INT, 1000, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                        "One record out of this number is logged when diagnostics.mode is sampled")
+                .define(DIAGNOSTICS_MAX_PER_SECOND_CONFIG, ConfigDef.Type.INT, 10, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW,
+                        "Records logged per second at most when diagnostics.mode is rate")
+                .define(DIAGNOSTICS_MAX_CHARS_CONFIG, ConfigDef.Type.INT, 2000, ConfigDef.Range.atLeast(16), ConfigDef.Importance.LOW,
+                        "Characters logged at most per payload, the rest is cut");
+    }
+
+    // the diagnostics of a transformer, logged with its logger
+    public static Diagnostics create(SimpleConfig config, Logger logger) {
+        return new Diagnostics(logger,
+                Mode.valueOf(config.getString(DIAGNOSTICS_MODE_CONFIG).toUpperCase(Locale.ROOT)),
+                config.getInt(DIAGNOSTICS_SAMPLE_EVERY_CONFIG),
+                config.getInt(DIAGNOSTICS_MAX_PER_SECOND_CONFIG),
+                config.getInt(DIAGNOSTICS_MAX_CHARS_CONFIG));
+    }
+
+    /**
+     * Whether the content of this record is logged : call it once per record, then log as many lines as needed when it is true.
+     */
+    public boolean sample() {
+
+        switch (mode) {
+            case SAMPLED:
+                return sampled();
+            case RATE:
+                return underRate();
+            default:
+                return false;
+        }
+    }
+
+    private synchronized boolean sampled() {
+        return count++ % sampleEvery == 0 && logger.isInfoEnabled();
+    }
+
+    private synchronized boolean underRate() {
+
+        long now = System.nanoTime();
+        if (now - windowStart >= SECOND_NANOS) {
+            windowStart = now;
+            count = 0;
+        }
+        if (count >= maxPerSecond || !logger.isInfoEnabled()) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    // the arguments are formatted by the logger, cut to diagnostics.max.chars
+    public void log(String format, Object... arguments) {
+
+        Object[] payloads = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            payloads[i] = new Payload(arguments[i], maxChars);
+        }
+        logger.info(format, payloads);
+    }
+
+    private static final class Payload {
+
+        private final Object value;
+        private final int maxChars;
+
+        private Payload(Object value, int maxChars) {
+            this.value = value;
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public String toString() {
+
+            String formatted = String.valueOf(value);
+            if (formatted.length() <= maxChars) {
+                return formatted;
+            }
+            return formatted.substring(0, maxChars) + "... (" + (formatted.length() - maxChars) + " more characters)";
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.transformers.common;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+public final class DirectBuffers {
+
+    /*
+        Frees a direct buffer, or unmaps a mapped file, right away instead of when the garbage collector gets to it :
+        the off-heap tables of the transformers are large, and a task restart would otherwise leave one more behind,
+        counted against -XX:MaxDirectMemorySize until the next old collection.
+        Uses sun.misc.Unsafe.invokeCleaner ( jdk.unsupported, no flag needed ) : when the JVM does not have it, the buffer is left
+        to the garbage collector. The buffer must not be read once freed, its owner makes sure of it.
+     */
+
+    // null when the JVM does not have it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the buffers are freed by the garbage collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectBuffers() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    // false when the buffer is left to the garbage collector ( a heap buffer, a slice, or no invokeCleaner )
+    public static boolean free(ByteBuffer buffer) {
+
+        if (INVOKE_CLEANER == null || buffer == null || !buffer.isDirect()) {
+            return false;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.transformers.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+
+    /*
+        Latencies in nanoseconds, counted in log-linear buckets : 2^subBits buckets per power of two, so a percentile is known
+        within 1 / 2^subBits whatever the latency, in a few kilobytes and without allocating per record.
+        The buckets can be striped by thread ( see striped ), so that the tasks of a worker do not fight over the same cache lines
+        when they share a histogram. The stripes are only merged when a percentile is read.
+     */
+
+    private final int subBits;
+    private final int subBuckets;
+    private final int buckets;
+
+    // a row of buckets per stripe, a thread always counts in the same stripe
+    private final int stripeMask;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    // a histogram for a single thread at a time, or a few threads that seldom record at the same time
+    public LatencyHistogram(int subBits) {
+        this(subBits, 1);
+    }
+
+    private LatencyHistogram(int subBits, int stripes) {
+
+        if (subBits < 1 || subBits > 10) {
+            throw new IllegalArgumentException("Sub-bucket bits must be between 1 and 10: " + subBits);
+        }
+        this.subBits = subBits;
+        this.subBuckets = 1 << subBits;
+        this.buckets = (64 - subBits + 1) * subBuckets;
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * buckets);
+    }
+
+    // a histogram recorded by many threads at once : a stripe per processor ( twice as many, 16 at most )
+    public static LatencyHistogram striped(int subBits) {
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+        return new LatencyHistogram(subBits, Math.min(16, Integer.highestOneBit(processors * 2 - 1)));
+    }
+
+    public void record(long nanos) {
+
+        long value = Math.max(0L, nanos);
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * buckets + bucket(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    private int bucket(long value) {
+
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        // the power of two of the value, then its subBits next bits
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - subBits + 1;
+        return exponent * subBuckets + (int) (value >>> (exponent - 1)) - subBuckets;
+    }
+
+    // the upper bound of the values of a bucket
+    private long highest(int bucket) {
+
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+        int exponent = bucket / subBuckets;
+        long mantissa = bucket % subBuckets + subBuckets;
+        return ((mantissa + 1) << (exponent - 1)) - 1;
+    }
+
+    // adds the latencies of another histogram of the same precision, the per thread histograms of a run for example
+    public void add(LatencyHistogram other) {
+
+        if (other.subBits != subBits) {
+            throw new IllegalArgumentException("Cannot add a histogram of " + other.subBits + " sub-bucket bits to one of " + subBits);
+        }
+        long[] merged = other.snapshot();
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] != 0) {
+                counts.addAndGet(i, merged[i]);
+            }
+        }
+        count.add(other.count.sum());
+        total.add(other.total.sum());
+        max.accumulate(other.max.get());
+    }
+
+    private long[] snapshot() {
+
+        long[] merged = new long[buckets];
+        for (int i = 0; i < counts.length(); i++) {
+            merged[i % buckets] += counts.get(i);
+        }
+        return merged;
+    }
+
+    // the latency under which this fraction of the records were, in nanoseconds
+    public long percentile(double fraction) {
+
+        long[] merged = snapshot();
+        long recorded = 0;
+        for (long bucketCount : merged) {
+            recorded += bucketCount;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < merged.length; i++) {
+            seen += merged[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public double mean() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0.0 : (double) total.sum() / recorded;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.function.Function;
+
+public final class SchemaCache<V> implements CacheStats {
+
+    /*
+        Bounded cache from an input schema to whatever a transformer precomputes for it (output schema, field mapping, ...).
+        Source connectors hand us the same Schema instance for every record of a table, so the lookup is done by identity first.
+        A structurally equal instance (rebuilt by a converter for example) takes over the existing entry instead of compiling it again,
+        and an evolved schema (a new column) is a different schema, so it gets its own entry.
+        When the cache is full, the least recently used entry is evicted.
+     */
+
+    private final Schema[] keys;
+    private final Object[] values;
+    private final long[] lastAccess;
+    private int size;
+    private long clock;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SchemaCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Schema cache capacity must be positive: " + capacity);
+        }
+        this.keys = new Schema[capacity];
+        this.values = new Object[capacity];
+        this.lastAccess = new long[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized V computeIfAbsent(Schema schema, Function<Schema, V> compiler) {
+
+        clock++;
+
+        // fast path : the very same schema instance
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == schema) {
+                lastAccess[i] = clock;
+                hits++;
+                return (V) values[i];
+            }
+        }
+
+        // an equal schema under another instance : the entry now belongs to the new instance
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(schema)) {
+                keys[i] = schema;
+                lastAccess[i] = clock;
+                hits++;
+                return (V) values[i];
+            }
+        }
+
+        misses++;
+        V value = compiler.apply(schema);
+        int slot = size < keys.length ? size++ : evict();
+        keys[slot] = schema;
+        values[slot] = value;
+        lastAccess[slot] = clock;
+        return value;
+    }
+
+    private int evict() {
+
+        int eldest = 0;
+        for (int i = 1; i < size; i++) {
+            if (lastAccess[i] < lastAccess[eldest]) {
+                eldest = i;
+            }
+        }
+        evictions++;
+        return eldest;
+    }
+
+    @Override
+    public synchronized long hits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+}
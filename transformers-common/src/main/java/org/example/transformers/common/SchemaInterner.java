@@ -0,0 +1,70 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SchemaInterner {
+
+    /*
+        One canonical instance per distinct output schema, for all the transformers of a plugin ( all the tasks of the worker ).
+        The registry is per plugin : each plugin shades this class under its own package and Connect loads each plugin in its own
+        class loader, so two plugins never share their schemas ( nor could they, the schemas of one are not those of the other ).
+        Its counters are published with the metrics of every transformer of the plugin ( see TransformMetrics ).
+        The converters downstream ( Avro, Json ) and the registry client keep caches keyed by schema : with the very same instance
+        record after record, their lookups stop at the reference comparison instead of walking two equal schemas.
+        Schemas are interned when a transformer compiles its plan for a new input schema, never per record.
+        The number of schemas is bounded : past it, a new schema is used as is, and counted as rejected.
+     */
+
+    private static final int MAX_SCHEMAS = 4096;
+
+    private static final ConcurrentMap<Schema, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private static final LongAdder LOOKUPS = new LongAdder();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+
+    private SchemaInterner() {
+        throw new IllegalStateException("Cannot instantiate class");
+    }
+
+    // the canonical instance of this schema ( the first equal one interned )
+    public static Schema intern(Schema schema) {
+
+        LOOKUPS.increment();
+        Schema canonical = SCHEMAS.get(schema);
+        if (canonical != null) {
+            HITS.increment();
+            return canonical;
+        }
+        if (SCHEMAS.size() >= MAX_SCHEMAS) {
+            REJECTED.increment();
+            return schema;
+        }
+        canonical = SCHEMAS.putIfAbsent(schema, schema);
+        if (canonical != null) {
+            HITS.increment();
+            return canonical;
+        }
+        return schema;
+    }
+
+    public static int distinctSchemas() {
+        return SCHEMAS.size();
+    }
+
+    public static long lookups() {
+        return LOOKUPS.sum();
+    }
+
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    public static long rejected() {
+        return REJECTED.sum();
+    }
+}
@@ -0,0 +1,359 @@
+package org.example.transformers.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Slf4j
+public final class TransformMetrics implements DynamicMBean {
+
+    /*
+        Metrics of a transformer, shared by all the tasks that run it and published as an MBean :
+        kconnect.samples:type=transform-metrics,connector=<metrics.connector>,transform=<metrics.transform>
+        A transformer knows neither its connector nor its alias, so they come from its config : the metrics are off by default, and
+        turning them on needs the connector name, or two connectors running the same transformer would count into the same MBean.
+        The transform name is the transformer class by default, give the alias when a connector runs the same class twice.
+        The counters are LongAdders and the latency histogram is striped by thread, so the tasks of a worker do not fight over
+        the same cache lines. The latencies of apply() are counted in log-linear buckets ( 8 per power of two, so a percentile
+        is known within 12% ), the percentiles are only computed when JMX reads them.
+        The caches of the transformers are watched under a name : <name>Hits, <name>Misses, <name>HitRate and <name>Evictions sum
+        the caches of that name of every task, those of the closed tasks are kept. The SchemaCache attributes are always there.
+        The SchemaInterner attributes are those of the plugin, the same for all its transformers.
+     */
+
+    public static final String METRICS_ENABLED_CONFIG = "metrics.enabled";
+    public static final String METRICS_CONNECTOR_CONFIG = "metrics.connector";
+    public static final String METRICS_TRANSFORM_CONFIG = "metrics.transform";
+
+    // the name of the schema caches ( see SchemaCache )
+    public static final String SCHEMA_CACHE = "SchemaCache";
+
+    private static final String DOMAIN = "kconnect.samples";
+
+    // the metrics of a disabled transformer : nothing is counted
+    public static final TransformMetrics DISABLED = new TransformMetrics(null);
+
+    // guarded by the class
+    private static final Map<ObjectName, TransformMetrics> REGISTERED = new HashMap<>();
+
+    private final ObjectName name;
+    private final boolean enabled;
+    private int tasks;
+
+    private final LongAdder recordsIn = new LongAdder();
+    private final LongAdder recordsOut = new LongAdder();
+    private final LongAdder recordsDropped = new LongAdder();
+    private final LongAdder passThroughs = new LongAdder();
+    private final LongAdder parseFailures = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latencies = LatencyHistogram.striped(3);
+
+    // sorted by name, so that JMX shows the attributes in the same order every time
+    private final Map<String, WatchedCaches> caches = new ConcurrentSkipListMap<>();
+
+    private TransformMetrics(ObjectName name) {
+        this.name = name;
+        this.enabled = name != null;
+        caches.put(SCHEMA_CACHE, new WatchedCaches());
+    }
+
+    // adds the metrics settings to the config of a transformer
+    public static ConfigDef define(ConfigDef configDef) {
+        return configDef
+                .define(METRICS_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW,
+                        "Publish the metrics of the transformer as an MBean, " + METRICS_CONNECTOR_CONFIG + " is then required")
+                .define(METRICS_CONNECTOR_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW,
+                        "Connector name in the MBean name, the transformers do not know the connector they run in")
+                .define(METRICS_TRANSFORM_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW,
+                        "Transform name ( its alias ) in the MBean name, the class of the transformer when not set");
+    }
+
+    /**
+     * The metrics of this transformer for this connector, registered by the first task that configures it.
+     * Every task must give them back with release when it is closed.
+     * @throws ConfigException when the metrics are enabled without a connector name
+     */
+    public static TransformMetrics acquire(SimpleConfig config, Class<?> transformer) {
+
+        if (!config.getBoolean(METRICS_ENABLED_CONFIG)) {
+            return DISABLED;
+        }
+        String connector = config.getString(METRICS_CONNECTOR_CONFIG);
+        if (connector == null || connector.isBlank()) {
+            throw new ConfigException(METRICS_CONNECTOR_CONFIG, connector,
+                    "The connector name is required with " + METRICS_ENABLED_CONFIG + ", so that two connectors do not share the same metrics");
+        }
+        String transform = config.getString(METRICS_TRANSFORM_CONFIG);
+        if (transform == null) {
+            transform = transformer.getName().substring(transformer.getName().lastIndexOf('.') + 1);
+        }
+        ObjectName name = objectName(connector, transform);
+
+        synchronized (TransformMetrics.class) {
+            TransformMetrics metrics = REGISTERED.get(name);
+            if (metrics == null) {
+                metrics = new TransformMetrics(name);
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+                } catch (JMException e) {
+                    // still counted, only not published
+                    log.warn("Cannot register the metrics {}", name, e);
+                }
+                REGISTERED.put(name, metrics);
+            }
+            metrics.tasks++;
+            return metrics;
+        }
+    }
+
+    private static ObjectName objectName(String connector, String transform) {
+
+        try {
+            return new ObjectName(DOMAIN + ":type=transform-metrics,connector=" + quoteIfNeeded(connector) + ",transform=" + quoteIfNeeded(transform));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid metrics name for " + connector + " / " + transform, e);
+        }
+    }
+
+    private static String quoteIfNeeded(String value) {
+
+        for (char character : value.toCharArray()) {
+            if (",=:\"*?\n".indexOf(character) >= 0) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+
+    // a cache of a task, counted under this name until the task releases it ( nothing when the cache is null, a disabled one )
+    public void watch(String cacheName, CacheStats cache) {
+        if (enabled && cache != null) {
+            caches.computeIfAbsent(cacheName, watched -> new WatchedCaches()).open.add(cache);
+        }
+    }
+
+    // when a task is closed : its caches are folded into the totals, the MBean is unregistered with the last task
+    public void release(CacheStats... closed) {
+
+        if (!enabled) {
+            return;
+        }
+        for (CacheStats cache : closed) {
+            for (WatchedCaches watched : caches.values()) {
+                if (cache != null && watched.open.remove(cache)) {
+                    watched.closedHits.add(cache.hits());
+                    watched.closedMisses.add(cache.misses());
+                    watched.closedEvictions.add(cache.evictions());
+                }
+            }
+        }
+        synchronized (TransformMetrics.class) {
+            if (--tasks == 0 && REGISTERED.remove(name) == this) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+                } catch (JMException e) {
+                    log.debug("The metrics {} were not registered", name, e);
+                }
+            }
+        }
+    }
+
+    // the start of apply(), to give back to applied or failed
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void applied(long start, Object transformed) {
+
+        if (!enabled) {
+            return;
+        }
+        latencies.record(System.nanoTime() - start);
+        recordsIn.increment();
+        if (transformed == null) {
+            recordsDropped.increment();
+        } else {
+            recordsOut.increment();
+        }
+    }
+
+    public void failed(long start) {
+
+        if (!enabled) {
+            return;
+        }
+        latencies.record(System.nanoTime() - start);
+        recordsIn.increment();
+        failures.increment();
+    }
+
+    // a record given back as it is : a null value ( a tombstone ), nothing to transform
+    public void passThrough() {
+        if (enabled) {
+            passThroughs.increment();
+        }
+    }
+
+    // a record given back as it is because its content could not be parsed
+    public void parseFailure() {
+        if (enabled) {
+            parseFailures.increment();
+        }
+    }
+
+    public ObjectName name() {
+        return name;
+    }
+
+    private int tasks() {
+        synchronized (TransformMetrics.class) {
+            return tasks;
+        }
+    }
+
+    // every attribute, read when JMX asks for it
+    private Map<String, Metric> metrics() {
+
+        Map<String, Metric> metrics = new LinkedHashMap<>();
+        metrics.put("RecordsIn", Metric.count("Records given to apply()", recordsIn::sum));
+        metrics.put("RecordsOut", Metric.count("Records returned by apply()", recordsOut::sum));
+        metrics.put("RecordsDropped", Metric.count("Records dropped by apply() ( null returned )", recordsDropped::sum));
+        metrics.put("PassThroughs", Metric.count("Records given back as they are, nothing to transform", passThroughs::sum));
+        metrics.put("ParseFailures", Metric.count("Records given back as they are, their content could not be parsed", parseFailures::sum));
+        metrics.put("Failures", Metric.count("Records for which apply() threw", failures::sum));
+        caches.forEach((cacheName, watched) -> {
+            metrics.put(cacheName + "Hits", Metric.count(cacheName + " hits", watched::hits));
+            metrics.put(cacheName + "Misses", Metric.count(cacheName + " misses", watched::misses));
+            metrics.put(cacheName + "HitRate", Metric.ratio(cacheName + " hits out of the lookups", watched::hitRate));
+            metrics.put(cacheName + "Evictions", Metric.count(cacheName + " entries evicted", watched::evictions));
+        });
+        metrics.put("SchemaInternerLookups", Metric.count("Output schemas interned by the transformers of the plugin", SchemaInterner::lookups));
+        metrics.put("SchemaInternerHits", Metric.count("Output schemas that were already interned", SchemaInterner::hits));
+        metrics.put("SchemaInternerRejected", Metric.count("Output schemas not interned, the interner being full", SchemaInterner::rejected));
+        metrics.put("SchemaInternerSchemas", new Metric("int", "Distinct output schemas interned", SchemaInterner::distinctSchemas));
+        metrics.put("LatencyMeanMicros", Metric.ratio("Mean latency of apply()", () -> latencies.mean() / 1e3));
+        metrics.put("LatencyP50Micros", Metric.ratio("Median latency of apply()", () -> latencies.percentile(0.5) / 1e3));
+        metrics.put("LatencyP99Micros", Metric.ratio("99th percentile of the latency of apply()", () -> latencies.percentile(0.99) / 1e3));
+        metrics.put("LatencyP999Micros", Metric.ratio("99.9th percentile of the latency of apply()", () -> latencies.percentile(0.999) / 1e3));
+        metrics.put("LatencyMaxMicros", Metric.ratio("Highest latency of apply()", () -> latencies.max() / 1e3));
+        metrics.put("Tasks", new Metric("int", "Tasks running the transformer", this::tasks));
+        return metrics;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+
+        Metric metric = metrics().get(attribute);
+        if (metric == null) {
+            throw new AttributeNotFoundException("No metric " + attribute + " in " + name);
+        }
+        return metric.value.get();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+
+        Map<String, Metric> metrics = metrics();
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes) {
+            Metric metric = metrics.get(attribute);
+            if (metric != null) {
+                values.add(new Attribute(attribute, metric.value.get()));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read-only : " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "The metrics have no operation");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+
+        MBeanAttributeInfo[] attributes = metrics().entrySet().stream()
+                .map(metric -> new MBeanAttributeInfo(metric.getKey(), metric.getValue().type, metric.getValue().description, true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+        return new MBeanInfo(TransformMetrics.class.getName(), "Metrics of a transformer", attributes, null, null, null);
+    }
+
+    private static final class Metric {
+
+        private final String type;
+        private final String description;
+        private final Supplier<?> value;
+
+        private Metric(String type, String description, Supplier<?> value) {
+            this.type = type;
+            this.description = description;
+            this.value = value;
+        }
+
+        private static Metric count(String description, Supplier<Long> value) {
+            return new Metric("long", description, value);
+        }
+
+        private static Metric ratio(String description, Supplier<Double> value) {
+            return new Metric("double", description, value);
+        }
+    }
+
+    // the caches of a name : those of the running tasks, and the totals of those of the closed ones
+    private static final class WatchedCaches {
+
+        private final List<CacheStats> open = new CopyOnWriteArrayList<>();
+        private final LongAdder closedHits = new LongAdder();
+        private final LongAdder closedMisses = new LongAdder();
+        private final LongAdder closedEvictions = new LongAdder();
+
+        private long hits() {
+            return closedHits.sum() + open.stream().mapToLong(CacheStats::hits).sum();
+        }
+
+        private long misses() {
+            return closedMisses.sum() + open.stream().mapToLong(CacheStats::misses).sum();
+        }
+
+        private long evictions() {
+            return closedEvictions.sum() + open.stream().mapToLong(CacheStats::evictions).sum();
+        }
+
+        private double hitRate() {
+            long hits = hits();
+            long lookups = hits + misses();
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class AllocationBudgets {
+
+    /*
+        The bytes allocated by apply() per record, checked against the budgets of src/test/resources/allocation-budgets.properties.
+        Shared by the AllocationBudgetTest of the transformers modules through the test jar of this module, the budgets being those
+        of the module under test ( this module has none ).
+        The allocations are counted by the jvm for the current thread, after a warmup long enough for the JIT to remove what it can
+        ( a second of records at least ),
+        and the lowest of the rounds is kept : a round where a method was being compiled again allocates more. The rounds go on
+        until a few of them in a row measure no less, since the first shapes of a run are measured while the JIT is still busy.
+        The measures take a minute per module, so the AllocationBudgetTests only run when asked to :
+        mvn test -Dallocation.budgets=check
+        When a change lowers the allocations, or raises them on purpose, write the budgets again ( measured + 25%, 128 bytes at least : the JIT does not remove the same allocations on every run ) :
+        mvn test -Dtest=AllocationBudgetTest -Dallocation.budgets=update
+     */
+
+    // the system property running the AllocationBudgetTests : check the budgets, or write them again
+    public static final String PROPERTY = "allocation.budgets";
+    public static final String ENABLED = "check|update";
+
+    private static final String RESOURCE = "/allocation-budgets.properties";
+    private static final Path SOURCE = Paths.get("src", "test", "resources", "allocation-budgets.properties");
+
+    private static final int WARMUP_RECORDS = 20_000;
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final int MEASURED_RECORDS = 2_000;
+    private static final int STABLE_ROUNDS = 5;
+    private static final int MAX_ROUNDS = 50;
+    private static final double HEADROOM = 1.25;
+    private static final long MIN_HEADROOM_BYTES = 128;
+
+    private final Properties budgets = new Properties();
+    private final TreeMap<String, Long> measured = new TreeMap<>();
+    private final boolean update = "update".equals(System.getProperty(PROPERTY));
+
+    public AllocationBudgets() throws IOException {
+
+        try (InputStream in = AllocationBudgets.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    budgets.load(reader);
+                }
+            }
+        }
+    }
+
+    // fails when the transformation allocates more per record than the budget of this shape
+    public void check(String shape, Transformation<SourceRecord> transformation, SourceRecord record) {
+
+        long bytes = bytesPerRecord(transformation, record);
+        measured.put(shape, bytes);
+        if (update) {
+            return;
+        }
+        String budget = budgets.getProperty(shape);
+        assertNotNull(budget, () -> String.format(Locale.ROOT, "No allocation budget for %s, measured %d bytes/record", shape, bytes));
+        assertTrue(bytes <= Long.parseLong(budget.trim()),
+                () -> String.format(Locale.ROOT, "%s allocates %d bytes/record, over its budget of %s", shape, bytes, budget.trim()));
+    }
+
+    // writes the budgets again from the measures of this run, with -Dallocation.budgets=update
+    public void writeIfUpdating() throws IOException {
+
+        if (!update) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(SOURCE, StandardCharsets.UTF_8)) {
+            writer.write("# Bytes allocated per record by apply() ( see AllocationBudgets )\n");
+            writer.write("# <transformer>.<key|value>.<schema|schemaless>.<record shape>=<bytes>\n");
+            for (Map.Entry<String, Long> shape : measured.entrySet()) {
+                long bytes = shape.getValue();
+                writer.write(shape.getKey() + "=" + Math.max((long) Math.ceil(bytes * HEADROOM), bytes + MIN_HEADROOM_BYTES) + "\n");
+            }
+        }
+    }
+
+    private static long bytesPerRecord(Transformation<SourceRecord> transformation, SourceRecord record) {
+
+        // the results are kept until the end of a round, so that none of them can be optimized away
+        Object[] results = new Object[MEASURED_RECORDS];
+        long warmupStart = System.nanoTime();
+        for (int i = 0; i < WARMUP_RECORDS || System.nanoTime() - warmupStart < WARMUP_NANOS; i++) {
+            results[i % MEASURED_RECORDS] = transformation.apply(record);
+        }
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0, stable = 0; round < MAX_ROUNDS && stable < STABLE_ROUNDS; round++) {
+            long before = allocatedBytes();
+            for (int i = 0; i < MEASURED_RECORDS; i++) {
+                results[i] = transformation.apply(record);
+            }
+            long allocated = allocatedBytes() - before;
+            stable = allocated < lowest ? 0 : stable + 1;
+            lowest = Math.min(lowest, allocated);
+        }
+        return lowest / MEASURED_RECORDS;
+    }
+
+    private static long allocatedBytes() {
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            throw new IllegalStateException("This jvm does not count the allocated bytes");
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.transformers.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void knowsThePercentilesWithinItsPrecision() {
+
+        LatencyHistogram histogram = new LatencyHistogram(5);
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_000.5, histogram.mean(), 1e-9);
+        assertWithin(50_000, histogram.percentile(0.5), 1.0 / 32);
+        assertWithin(99_000, histogram.percentile(0.99), 1.0 / 32);
+        assertEquals(100_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    void countsSmallLatenciesExactly() {
+
+        LatencyHistogram histogram = LatencyHistogram.striped(3);
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(-1);
+
+        assertEquals(0, histogram.percentile(0.1));
+        assertEquals(3, histogram.percentile(0.5));
+        assertEquals(5, histogram.percentile(1.0));
+    }
+
+    @Test
+    void addsTheLatenciesOfAnotherHistogram() {
+
+        LatencyHistogram first = new LatencyHistogram(5);
+        LatencyHistogram second = new LatencyHistogram(5);
+        first.record(1_000);
+        second.record(1_000_000);
+        second.record(2_000_000);
+
+        first.add(second);
+
+        assertEquals(3, first.count());
+        assertEquals(2_000_000, first.max());
+        assertWithin(1_000_000, first.percentile(0.5), 1.0 / 32);
+        assertThrows(IllegalArgumentException.class, () -> first.add(new LatencyHistogram(3)));
+    }
+
+    @Test
+    void isEmptyAtFirst() {
+
+        LatencyHistogram histogram = new LatencyHistogram(3);
+
+        assertEquals(0, histogram.count());
+        assertEquals(0.0, histogram.mean());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    private static void assertWithin(long expected, long actual, double precision) {
+        assertTrue(Math.abs(actual - expected) <= expected * precision, () -> actual + " is not within " + precision + " of " + expected);
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchemaCacheTest {
+
+    private static Schema schema(String name) {
+        return SchemaBuilder.struct().name(name).field("id", Schema.INT32_SCHEMA).build();
+    }
+
+    @Test
+    void compilesASchemaOnceWhateverItsInstance() {
+
+        SchemaCache<String> cache = new SchemaCache<>(4);
+        AtomicInteger compilations = new AtomicInteger();
+
+        cache.computeIfAbsent(schema("Purchase"), schema -> schema.name() + compilations.incrementAndGet());
+        String rebuilt = cache.computeIfAbsent(schema("Purchase"), schema -> schema.name() + compilations.incrementAndGet());
+
+        assertEquals("Purchase1", rebuilt);
+        assertEquals(1, compilations.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSchema() {
+
+        SchemaCache<String> cache = new SchemaCache<>(2);
+        Schema first = schema("First");
+        Schema second = schema("Second");
+        cache.computeIfAbsent(first, Schema::name);
+        cache.computeIfAbsent(second, Schema::name);
+        cache.computeIfAbsent(first, Schema::name);
+
+        cache.computeIfAbsent(schema("Third"), Schema::name);
+        cache.computeIfAbsent(first, Schema::name);
+
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals("Second again", cache.computeIfAbsent(second, schema -> schema.name() + " again"));
+    }
+
+    @Test
+    void needsRoomForOneSchemaAtLeast() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaCache<>(0));
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SchemaInternerTest {
+
+    private static Schema schema() {
+        return SchemaBuilder.struct().name("Interned").field("id", Schema.INT64_SCHEMA).field("email", Schema.OPTIONAL_STRING_SCHEMA).build();
+    }
+
+    @Test
+    void givesTheFirstInstanceOfEqualSchemas() {
+
+        Schema first = schema();
+        Schema second = schema();
+        assertNotSame(first, second);
+
+        long hits = SchemaInterner.hits();
+        assertSame(SchemaInterner.intern(first), SchemaInterner.intern(second));
+        assertEquals(hits + 1, SchemaInterner.hits());
+    }
+
+    @Test
+    void publishesItsCountersWithTheMetricsOfTheTransformers() throws Exception {
+
+        SimpleConfig config = new SimpleConfig(TransformMetrics.define(new ConfigDef()), Map.of(TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, "interner"));
+        TransformMetrics metrics = TransformMetrics.acquire(config, SchemaInternerTest.class);
+        try {
+            SchemaInterner.intern(schema());
+            Object lookups = ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.name(), "SchemaInternerLookups");
+            Object schemas = ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.name(), "SchemaInternerSchemas");
+
+            assertEquals(SchemaInterner.lookups(), lookups);
+            assertEquals(SchemaInterner.distinctSchemas(), schemas);
+        } finally {
+            metrics.release();
+        }
+    }
+}
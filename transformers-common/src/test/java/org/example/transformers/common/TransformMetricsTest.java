@@ -0,0 +1,174 @@
+package org.example.transformers.common;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.transforms.util.SimpleConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransformMetricsTest {
+
+    private static final ConfigDef CONFIG_DEF = TransformMetrics.define(new ConfigDef());
+
+    private static final MBeanServer SERVER = ManagementFactory.getPlatformMBeanServer();
+
+    private static SimpleConfig config(String connector) {
+        return new SimpleConfig(CONFIG_DEF, Map.of(TransformMetrics.METRICS_ENABLED_CONFIG, "true", TransformMetrics.METRICS_CONNECTOR_CONFIG, connector));
+    }
+
+    @Test
+    void registersOneMBeanForAllTheTasksUntilTheLastOneIsClosed() throws Exception {
+
+        TransformMetrics first = TransformMetrics.acquire(config("registration"), TransformMetricsTest.class);
+        TransformMetrics second = TransformMetrics.acquire(config("registration"), TransformMetricsTest.class);
+        ObjectName name = new ObjectName("kconnect.samples:type=transform-metrics,connector=registration,transform=TransformMetricsTest");
+
+        assertSame(first, second);
+        assertEquals(name, first.name());
+        assertEquals(2, SERVER.getAttribute(name, "Tasks"));
+
+        first.release();
+        assertTrue(SERVER.isRegistered(name));
+        second.release();
+        assertFalse(SERVER.isRegistered(name));
+    }
+
+    @Test
+    void countsTheRecordsAndTheirLatencies() throws Exception {
+
+        TransformMetrics metrics = TransformMetrics.acquire(config("records"), TransformMetricsTest.class);
+        try {
+            metrics.applied(metrics.start(), "transformed");
+            metrics.applied(metrics.start(), null);
+            metrics.failed(metrics.start());
+            metrics.passThrough();
+            metrics.parseFailure();
+
+            ObjectName name = metrics.name();
+            assertEquals(3L, SERVER.getAttribute(name, "RecordsIn"));
+            assertEquals(1L, SERVER.getAttribute(name, "RecordsOut"));
+            assertEquals(1L, SERVER.getAttribute(name, "RecordsDropped"));
+            assertEquals(1L, SERVER.getAttribute(name, "Failures"));
+            assertEquals(1L, SERVER.getAttribute(name, "PassThroughs"));
+            assertEquals(1L, SERVER.getAttribute(name, "ParseFailures"));
+            assertTrue((double) SERVER.getAttribute(name, "LatencyMaxMicros") >= (double) SERVER.getAttribute(name, "LatencyP50Micros"));
+        } finally {
+            metrics.release();
+        }
+    }
+
+    @Test
+    void sumsTheWatchedCachesOfEveryTaskAndKeepsThoseOfTheClosedOnes() throws Exception {
+
+        Schema first = SchemaBuilder.struct().name("First").field("a", Schema.INT32_SCHEMA).build();
+        Schema second = SchemaBuilder.struct().name("Second").field("b", Schema.INT32_SCHEMA).build();
+
+        TransformMetrics metrics = TransformMetrics.acquire(config("caches"), TransformMetricsTest.class);
+        TransformMetrics.acquire(config("caches"), TransformMetricsTest.class);
+        SchemaCache<String> closedTask = new SchemaCache<>(1);
+        SchemaCache<String> runningTask = new SchemaCache<>(1);
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, closedTask);
+        metrics.watch(TransformMetrics.SCHEMA_CACHE, runningTask);
+        CacheStats names = new FixedStats(3, 1, 0);
+        metrics.watch("NameCache", names);
+        try {
+            closedTask.computeIfAbsent(first, Schema::name);
+            closedTask.computeIfAbsent(first, Schema::name);
+            closedTask.computeIfAbsent(second, Schema::name);
+            metrics.release(closedTask);
+            runningTask.computeIfAbsent(first, Schema::name);
+            runningTask.computeIfAbsent(first, Schema::name);
+
+            ObjectName name = metrics.name();
+            assertEquals(2L, SERVER.getAttribute(name, "SchemaCacheHits"));
+            assertEquals(3L, SERVER.getAttribute(name, "SchemaCacheMisses"));
+            assertEquals(1L, SERVER.getAttribute(name, "SchemaCacheEvictions"));
+            assertEquals(0.4, (double) SERVER.getAttribute(name, "SchemaCacheHitRate"), 1e-9);
+            assertEquals(3L, SERVER.getAttribute(name, "NameCacheHits"));
+            assertEquals(0.75, (double) SERVER.getAttribute(name, "NameCacheHitRate"), 1e-9);
+            assertTrue(Arrays.stream(SERVER.getMBeanInfo(name).getAttributes()).map(MBeanAttributeInfo::getName).anyMatch("NameCacheEvictions"::equals));
+        } finally {
+            metrics.release(runningTask, names);
+        }
+    }
+
+    @Test
+    void separatesTheAliasesOfTheSameTransformer() throws Exception {
+
+        TransformMetrics first = TransformMetrics.acquire(new SimpleConfig(CONFIG_DEF, Map.of(TransformMetrics.METRICS_ENABLED_CONFIG, "true",
+                TransformMetrics.METRICS_CONNECTOR_CONFIG, "aliases", TransformMetrics.METRICS_TRANSFORM_CONFIG, "RenameKey")), TransformMetricsTest.class);
+        TransformMetrics second = TransformMetrics.acquire(new SimpleConfig(CONFIG_DEF, Map.of(TransformMetrics.METRICS_ENABLED_CONFIG, "true",
+                TransformMetrics.METRICS_CONNECTOR_CONFIG, "aliases", TransformMetrics.METRICS_TRANSFORM_CONFIG, "RenameValue")), TransformMetricsTest.class);
+        try {
+            assertNotSame(first, second);
+            assertEquals(new ObjectName("kconnect.samples:type=transform-metrics,connector=aliases,transform=RenameKey"), first.name());
+            assertEquals(new ObjectName("kconnect.samples:type=transform-metrics,connector=aliases,transform=RenameValue"), second.name());
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+
+    @Test
+    void needsTheConnectorNameWhenEnabled() {
+
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, Map.of(TransformMetrics.METRICS_ENABLED_CONFIG, "true"));
+
+        assertThrows(ConfigException.class, () -> TransformMetrics.acquire(config, TransformMetricsTest.class));
+    }
+
+    @Test
+    void countsNothingWhenDisabled() {
+
+        SimpleConfig config = new SimpleConfig(CONFIG_DEF, Map.of());
+        TransformMetrics metrics = TransformMetrics.acquire(config, TransformMetricsTest.class);
+
+        assertSame(TransformMetrics.DISABLED, metrics);
+        assertEquals(0L, metrics.start());
+        metrics.applied(metrics.start(), "transformed");
+        metrics.release();
+    }
+
+    private static final class FixedStats implements CacheStats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        private FixedStats(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        @Override
+        public long hits() {
+            return hits;
+        }
+
+        @Override
+        public long misses() {
+            return misses;
+        }
+
+        @Override
+        public long evictions() {
+            return evictions;
+        }
+    }
+}